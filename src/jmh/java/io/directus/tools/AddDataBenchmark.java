@@ -0,0 +1,99 @@
+package io.directus.tools;
+
+import java.io.File;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * inserting a large data file, with one request ({@code addData}) and streamed in chunks ({@code importData})
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AddDataBenchmark {
+
+    @Param({"1000", "10000"})
+    private int items;
+
+    @Param({"1024"})
+    private int itemSize;
+
+    private DirectusStubServer server;
+    private DirectusAdministrationSdk sdk;
+    private File dataFile;
+    private File checkpointFile;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger("io.directus.tools").setLevel(java.util.logging.Level.WARNING);
+        server = new DirectusStubServer();
+        sdk = new DirectusAdministrationSdk(server.getUrl(), "_", "token");
+        dataFile = File.createTempFile("directus-benchmark", ".json");
+        checkpointFile = new File(dataFile.getPath() + ".checkpoint");
+        String text = "x".repeat(itemSize);
+        try (Writer writer = Files.newBufferedWriter(dataFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write('[');
+            for (int i = 0; i < items; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(new JSONObject().put("title", "item " + i).put("text", text).toString());
+            }
+            writer.write(']');
+        }
+    }
+
+
+    /**
+     * keeps the stub's memory flat, otherwise every invocation would add another copy of the file
+     */
+    @Setup(Level.Invocation)
+    public void clearItems() {
+        server.clearItems("articles");
+    }
+
+
+    @TearDown
+    public void tearDown() throws Exception {
+        sdk.close();
+        server.close();
+        Files.deleteIfExists(dataFile.toPath());
+        Files.deleteIfExists(checkpointFile.toPath());
+    }
+
+
+    @Benchmark
+    public void addData() throws Exception {
+        sdk.addData("articles", dataFile);
+    }
+
+
+    @Benchmark
+    public long importData() throws Exception {
+        return sdk.importData("articles", dataFile, DirectusAdministrationSdk.DEFAULT_IMPORT_CHUNK_SIZE, 4,
+            checkpointFile);
+    }
+
+}
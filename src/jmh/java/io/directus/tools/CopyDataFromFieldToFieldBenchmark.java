@@ -0,0 +1,65 @@
+package io.directus.tools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * copying a field of a whole collection, reading it page by page and writing it in batches
+ *
+ * Every invocation copies all rows again, the stub simply overwrites the values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class CopyDataFromFieldToFieldBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private DirectusStubServer server;
+    private DirectusAdministrationSdk sdk;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger("io.directus.tools").setLevel(Level.WARNING);
+        server = new DirectusStubServer();
+        server.seedCollection("articles", "title", rows, 100);
+        sdk = new DirectusAdministrationSdk(server.getUrl(), "_", "token");
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        sdk.close();
+        server.close();
+    }
+
+
+    @Benchmark
+    public void copyDataFromFieldToField() throws Exception {
+        sdk.copyDataFromFieldToField("articles", "title", "headline", DirectusAdministrationSdk.DEFAULT_COPY_BATCH_SIZE,
+            parallelism);
+    }
+
+}
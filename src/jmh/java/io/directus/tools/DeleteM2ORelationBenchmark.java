@@ -0,0 +1,66 @@
+package io.directus.tools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * deleting a relation definition that matches many relations, the matches are seeded again before each call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DeleteM2ORelationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int matches;
+
+    private DirectusStubServer server;
+    private DirectusAdministrationSdk sdk;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger("io.directus.tools").setLevel(java.util.logging.Level.WARNING);
+        server = new DirectusStubServer();
+        // relations that must not be touched
+        server.seedRelations("articles", "editor", "users", 100);
+        sdk = new DirectusAdministrationSdk(server.getUrl(), "_", "token");
+    }
+
+
+    @Setup(Level.Invocation)
+    public void seedMatches() {
+        server.seedRelations("articles", "author", "authors", matches);
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        sdk.close();
+        server.close();
+    }
+
+
+    @Benchmark
+    public void deleteM2ORelation() throws Exception {
+        sdk.deleteM2ORelation("articles", "author", "authors", null);
+    }
+
+}
@@ -0,0 +1,420 @@
+package io.directus.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * in-memory emulation of the Directus 7 endpoints the SDK uses, for benchmarks
+ *
+ * Supports {@code /items}, {@code /fields}, {@code /collections} and {@code /relations} with the query parameters
+ * the SDK sends ({@code fields}, {@code limit}, {@code offset}, {@code meta}, {@code filter[id][gt]} and equality
+ * and null filters on relations). Everything is kept in memory, there is no authentication and no validation
+ * beyond what the SDK relies on. Request bodies sent with {@code Content-Encoding: gzip} are inflated and
+ * responses are compressed if the request accepts gzip, like a server with compression enabled.
+ *
+ * Run the JVM with {@code -Dsun.net.httpserver.nodelay=true}, otherwise Nagle's algorithm adds delays to small
+ * responses that have nothing to do with the SDK.
+ */
+public class DirectusStubServer implements AutoCloseable {
+
+    private final Map<String, NavigableMap<Long, JSONObject>> items = new ConcurrentHashMap<>();
+    private final Map<String, JSONObject> collections = new ConcurrentHashMap<>();
+    // collection/field -> field
+    private final Map<String, JSONObject> fields = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, JSONObject> relations = new TreeMap<>();
+    private final AtomicLong nextId = new AtomicLong(1000);
+    private final AtomicLong requests = new AtomicLong();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * starts the server on a free port of the loopback interface
+     */
+    public DirectusStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(16, r -> {
+            Thread thread = new Thread(r, "directus-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+
+    /**
+     * @return the base url to pass to the SDK, the project is ignored
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+
+    /**
+     * creates (or replaces) a collection with an integer id and one string field holding {@code rows} items
+     *
+     * @param valueSize length of the field's values
+     */
+    public void seedCollection(String collection, String field, int rows, int valueSize) {
+        collections.put(collection, new JSONObject().put("collection", collection).put("note", JSONObject.NULL));
+        putField(collection, new JSONObject().put("field", "id").put("type", "integer").put("datatype", "INT"));
+        putField(collection, new JSONObject().put("field", field).put("type", "string").put("datatype", "TEXT"));
+        NavigableMap<Long, JSONObject> collectionItems = new TreeMap<>();
+        String padding = "x".repeat(Math.max(0, valueSize - 8));
+        for (long id = 1; id <= rows; id++) {
+            collectionItems.put(id, new JSONObject().put("id", id).put(field, String.format("%08d", id) + padding));
+        }
+        items.put(collection, collectionItems);
+    }
+
+
+    public void putField(String collection, JSONObject field) {
+        field.put("collection", collection).put("id", nextId.incrementAndGet());
+        fields.put(collection + '/' + field.getString("field"), field);
+    }
+
+
+    public int getItemCount(String collection) {
+        NavigableMap<Long, JSONObject> collectionItems = items.getOrDefault(collection, new TreeMap<>());
+        synchronized (collectionItems) {
+            return collectionItems.size();
+        }
+    }
+
+
+    public void clearItems(String collection) {
+        items.put(collection, new TreeMap<>());
+    }
+
+
+    /**
+     * adds {@code count} identical many to one relations
+     */
+    public void seedRelations(String manyCollection, String manyField, String oneCollection, int count) {
+        synchronized (relations) {
+            for (int i = 0; i < count; i++) {
+                long id = nextId.incrementAndGet();
+                relations.put(id, new JSONObject()
+                    .put("id", id)
+                    .put("collection_many", manyCollection)
+                    .put("field_many", manyField)
+                    .put("collection_one", oneCollection)
+                    .put("field_one", JSONObject.NULL)
+                    .put("junction_field", JSONObject.NULL));
+            }
+        }
+    }
+
+
+    public int getRelationCount() {
+        synchronized (relations) {
+            return relations.size();
+        }
+    }
+
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            String method = exchange.getRequestMethod();
+            // drop the project
+            String[] path = exchange.getRequestURI().getPath().replaceFirst("^/[^/]*", "").split("/");
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            InputStream requestBody = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                            ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+            String body = new String(requestBody.readAllBytes(), StandardCharsets.UTF_8);
+            if (path.length < 2) {
+                send(exchange, 200, new JSONObject().put("api", new JSONObject().put("version", "7.0.0")));
+                return;
+            }
+            switch (path[1]) {
+                case "items":
+                    handleItems(exchange, method, path, query, body);
+                    return;
+                case "collections":
+                    handleCollections(exchange, method, path, body);
+                    return;
+                case "fields":
+                    handleFields(exchange, method, path, body);
+                    return;
+                case "relations":
+                    handleRelations(exchange, method, path, query, body);
+                    return;
+                default:
+                    sendError(exchange, 404, "unknown path");
+            }
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+
+    private void handleItems(HttpExchange exchange, String method, String[] path, Map<String, String> query,
+        String body) throws IOException {
+        NavigableMap<Long, JSONObject> collectionItems = items.computeIfAbsent(path[2], c -> new TreeMap<>());
+        synchronized (collectionItems) {
+            if ("GET".equals(method) && path.length == 3) {
+                int limit = Integer.parseInt(query.getOrDefault("limit", "100"));
+                long offset = Long.parseLong(query.getOrDefault("offset", "0"));
+                long afterId = Long.parseLong(query.getOrDefault("filter[id][gt]", String.valueOf(Long.MIN_VALUE)));
+                String[] fieldNames = query.getOrDefault("fields", "*").split(",");
+                NavigableMap<Long, JSONObject> matching = collectionItems.tailMap(afterId, false);
+                JSONArray data = new JSONArray();
+                long skipped = 0;
+                for (JSONObject item : matching.values()) {
+                    if (skipped++ < offset) {
+                        continue;
+                    }
+                    if (limit >= 0 && data.length() >= limit) {
+                        break;
+                    }
+                    data.put("*".equals(fieldNames[0]) ? item : new JSONObject(item, fieldNames));
+                }
+                JSONObject response = new JSONObject().put("data", data);
+                if (query.containsKey("meta")) {
+                    response.put("meta", new JSONObject()
+                        .put("total_count", collectionItems.size())
+                        .put("filter_count", matching.size()));
+                }
+                send(exchange, 200, response);
+            } else if ("PATCH".equals(method)) {
+                JSONArray updates = path.length == 3 ? new JSONArray(body)
+                                : new JSONArray().put(new JSONObject(body).put("id", Long.parseLong(path[3])));
+                for (Object update : updates) {
+                    JSONObject values = (JSONObject) update;
+                    JSONObject item = collectionItems.get(values.getLong("id"));
+                    if (item == null) {
+                        sendError(exchange, 404, "item " + values.get("id") + " not found");
+                        return;
+                    }
+                    values.keySet().forEach(k -> item.put(k, values.get(k)));
+                }
+                send(exchange, 200, new JSONObject().put("data", updates));
+            } else if ("POST".equals(method)) {
+                Object value = new JSONTokener(body).nextValue();
+                JSONArray created = value instanceof JSONArray ? (JSONArray) value : new JSONArray().put(value);
+                for (Object object : created) {
+                    JSONObject item = (JSONObject) object;
+                    long id = item.has("id") ? item.getLong("id")
+                                    : collectionItems.isEmpty() ? 1 : collectionItems.lastKey() + 1;
+                    collectionItems.put(id, item.put("id", id));
+                }
+                send(exchange, 200, new JSONObject().put("data", value));
+            } else if ("DELETE".equals(method) && path.length == 4) {
+                for (String id : path[3].split(",")) {
+                    collectionItems.remove(Long.parseLong(id));
+                }
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                sendError(exchange, 405, method + " not supported");
+            }
+        }
+    }
+
+
+    private void handleCollections(HttpExchange exchange, String method, String[] path, String body)
+                    throws IOException {
+        if (path.length == 2 && "GET".equals(method)) {
+            send(exchange, 200, new JSONObject().put("data", new JSONArray(collections.values())));
+            return;
+        }
+        if (path.length == 2 && "POST".equals(method)) {
+            JSONObject collection = new JSONObject(body);
+            JSONArray collectionFields = collection.optJSONArray("fields");
+            collection.remove("fields");
+            collections.put(collection.getString("collection"), collection);
+            if (collectionFields != null) {
+                collectionFields.forEach(f -> putField(collection.getString("collection"), (JSONObject) f));
+            }
+            send(exchange, 200, new JSONObject().put("data", collection));
+            return;
+        }
+        JSONObject collection = collections.get(path[2]);
+        if (collection == null) {
+            sendError(exchange, 404, "collection " + path[2] + " not found");
+        } else if ("GET".equals(method)) {
+            send(exchange, 200, new JSONObject().put("data", collection));
+        } else if ("PATCH".equals(method)) {
+            JSONObject patch = new JSONObject(body);
+            patch.remove("fields");
+            patch.keySet().forEach(k -> collection.put(k, patch.get(k)));
+            send(exchange, 200, new JSONObject().put("data", collection));
+        } else if ("DELETE".equals(method)) {
+            collections.remove(path[2]);
+            items.remove(path[2]);
+            fields.keySet().removeIf(k -> k.startsWith(path[2] + '/'));
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            sendError(exchange, 405, method + " not supported");
+        }
+    }
+
+
+    private void handleFields(HttpExchange exchange, String method, String[] path, String body)
+                    throws IOException {
+        if (path.length == 2) {
+            send(exchange, 200, new JSONObject().put("data", new JSONArray(fields.values())));
+            return;
+        }
+        if (path.length == 3 && "POST".equals(method)) {
+            JSONObject field = new JSONObject(body);
+            if (fields.containsKey(path[2] + '/' + field.getString("field"))) {
+                sendError(exchange, 422, "field " + field.getString("field") + " exists");
+                return;
+            }
+            putField(path[2], field);
+            send(exchange, 200, new JSONObject().put("data", field));
+            return;
+        }
+        if (path.length == 3) {
+            JSONArray collectionFields = new JSONArray();
+            fields.forEach((key, field) -> {
+                if (key.startsWith(path[2] + '/')) {
+                    collectionFields.put(field);
+                }
+            });
+            send(exchange, 200, new JSONObject().put("data", collectionFields));
+            return;
+        }
+        String key = path[2] + '/' + path[3];
+        JSONObject field = fields.get(key);
+        if (field == null) {
+            sendError(exchange, 404, "field " + key + " not found");
+        } else if ("GET".equals(method)) {
+            send(exchange, 200, new JSONObject().put("data", field));
+        } else if ("DELETE".equals(method)) {
+            fields.remove(key);
+            NavigableMap<Long, JSONObject> collectionItems = items.getOrDefault(path[2], new TreeMap<>());
+            synchronized (collectionItems) {
+                collectionItems.values().forEach(item -> item.remove(path[3]));
+            }
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            sendError(exchange, 405, method + " not supported");
+        }
+    }
+
+
+    private void handleRelations(HttpExchange exchange, String method, String[] path, Map<String, String> query,
+        String body) throws IOException {
+        synchronized (relations) {
+            if (path.length == 2 && "GET".equals(method)) {
+                JSONArray matches = new JSONArray();
+                for (JSONObject relation : relations.values()) {
+                    if (matchesFilters(relation, query)) {
+                        matches.put(relation);
+                    }
+                }
+                send(exchange, 200, new JSONObject().put("data", matches));
+            } else if (path.length == 2 && "POST".equals(method)) {
+                Object value = new JSONTokener(body).nextValue();
+                JSONArray created = value instanceof JSONArray ? (JSONArray) value : new JSONArray().put(value);
+                for (Object object : created) {
+                    long id = nextId.incrementAndGet();
+                    relations.put(id, ((JSONObject) object).put("id", id));
+                }
+                send(exchange, 200, new JSONObject().put("data", value));
+            } else if (path.length == 3 && "DELETE".equals(method)) {
+                for (String id : path[2].split(",")) {
+                    relations.remove(Long.parseLong(id));
+                }
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                sendError(exchange, 405, method + " not supported");
+            }
+        }
+    }
+
+
+    private static boolean matchesFilters(JSONObject relation, Map<String, String> query) {
+        for (Map.Entry<String, String> parameter : query.entrySet()) {
+            String key = parameter.getKey();
+            if (!key.startsWith("filter[")) {
+                continue;
+            }
+            String field = key.substring("filter[".length(), key.indexOf(']'));
+            boolean matches = key.endsWith("[null]") ? relation.isNull(field)
+                            : parameter.getValue().equals(String.valueOf(relation.opt(field)));
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, new JSONObject().put("error", new JSONObject().put("message", message)));
+    }
+
+
+    private static void send(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.directus.tools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * a single read of a page of items, i.e. the request/response round trip and parsing of the SDK
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GetDirectusDataBenchmark {
+
+    @Param({"10", "500"})
+    private int pageSize;
+
+    /**
+     * whether the response is sent compressed, on the loopback interface this only shows the cost of inflating
+     */
+    @Param({"false", "true"})
+    private boolean compression;
+
+    private DirectusStubServer server;
+    private DirectusAdministrationSdk sdk;
+    private String urlContext;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger("io.directus.tools").setLevel(Level.WARNING);
+        server = new DirectusStubServer();
+        server.seedCollection("articles", "title", 1000, 100);
+        sdk = new DirectusAdministrationSdk(server.getUrl(), "_", "token");
+        sdk.setResponseCompression(compression);
+        urlContext = "/items/articles?limit=" + pageSize;
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        sdk.close();
+        server.close();
+    }
+
+
+    @Benchmark
+    public JSONObject getDirectusData() throws Exception {
+        return sdk.getDirectusData(urlContext);
+    }
+
+}
@@ -0,0 +1,120 @@
+package io.directus.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * moving data through the api of the stub server compared to sql on an embedded H2 database in MySQL mode
+ *
+ * The copy overwrites the same values on every invocation, the import inserts all items and deletes them again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class JdbcBackendBenchmark {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:directus;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Param({"10000"})
+    private int rows;
+
+    @Param({"api", "jdbc"})
+    private String backend;
+
+    private DirectusStubServer server;
+    private DirectusAdministrationSdk sdk;
+    private Connection connection;
+    private File dataFile;
+    private List<Long> importedIds;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger("io.directus.tools").setLevel(Level.WARNING);
+        server = new DirectusStubServer();
+        server.seedCollection("articles", "title", rows, 100);
+        sdk = new DirectusAdministrationSdk(server.getUrl(), "_", "token");
+
+        // the tables Directus would have created for the collections
+        connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE articles (id BIGINT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255)," +
+                " headline VARCHAR(255))");
+            statement.execute("CREATE TABLE imports (id BIGINT PRIMARY KEY, title VARCHAR(255))");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO articles (title) VALUES (?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, "x".repeat(100));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        if ("jdbc".equals(backend)) {
+            sdk.enableJdbcBackend(JDBC_URL, "sa", "");
+        }
+
+        dataFile = File.createTempFile("imports", ".ndjson");
+        importedIds = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(dataFile.toPath())) {
+            for (long id = 1; id <= rows; id++) {
+                writer.write(new JSONObject().put("id", id).put("title", "x".repeat(100)).toString());
+                writer.write('\n');
+                importedIds.add(id);
+            }
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() throws Exception {
+        sdk.close();
+        server.close();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+        Files.deleteIfExists(dataFile.toPath());
+    }
+
+
+    @Benchmark
+    public void copyDataFromFieldToField() throws Exception {
+        sdk.copyDataFromFieldToField("articles", "title", "headline");
+    }
+
+
+    @Benchmark
+    public void importAndDeleteItems() throws Exception {
+        sdk.importData("imports", dataFile, DirectusAdministrationSdk.DEFAULT_IMPORT_CHUNK_SIZE, 1,
+            new File(dataFile.getPath() + ".checkpoint"));
+        sdk.deleteItems("imports", importedIds);
+    }
+
+}
@@ -0,0 +1,83 @@
+package io.directus.tools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * creating and deleting the relations of a manifest, in batches and one by one
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class M2ORelationManifestBenchmark {
+
+    @Param({"50"})
+    private int relations;
+
+    private DirectusStubServer server;
+    private DirectusAdministrationSdk sdk;
+    private JSONArray manifest;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger("io.directus.tools").setLevel(java.util.logging.Level.WARNING);
+        server = new DirectusStubServer();
+        sdk = new DirectusAdministrationSdk(server.getUrl(), "_", "token");
+        manifest = new JSONArray();
+        for (int i = 0; i < relations; i++) {
+            manifest.put(new JSONObject()
+                .put("collection_many", "articles")
+                .put("field_many", "author_" + i)
+                .put("collection_one", "authors"));
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        sdk.close();
+        server.close();
+    }
+
+
+    @Benchmark
+    public void createAndDeleteBulk() throws Exception {
+        sdk.createM2ORelations(manifest);
+        sdk.deleteM2ORelations(manifest);
+    }
+
+
+    @Benchmark
+    public void createAndDeleteOneByOne() throws Exception {
+        for (int i = 0; i < manifest.length(); i++) {
+            JSONObject relation = manifest.getJSONObject(i);
+            sdk.createM2ORelation(relation.getString("collection_many"), relation.getString("field_many"),
+                relation.getString("collection_one"), null);
+        }
+        for (int i = 0; i < manifest.length(); i++) {
+            JSONObject relation = manifest.getJSONObject(i);
+            sdk.deleteM2ORelation(relation.getString("collection_many"), relation.getString("field_many"),
+                relation.getString("collection_one"), null);
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+
+
+/**
+ * posts the items of a (possibly huge) json or ndjson file in chunks to a collection
+ *
+ * The file is read incrementally, at most {@code parallelism} chunks are in memory and on the wire at a
+ * time. Every chunk's outcome is recorded in an {@link ImportCheckpoint}, a rerun with the same file and
+ * checkpoint only sends the chunks that did not make it.
+ *
+ * With the jdbc backend of the SDK every chunk is inserted with one JDBC batch in its own transaction instead of
+ * a request, so a chunk is either imported completely or not at all either way.
+ */
+class ChunkedItemImporter {
+
+    private final Logger logger = Logger.getLogger(ChunkedItemImporter.class.getName());
+
+    private final DirectusAdministrationSdk sdk;
+    private final String collection;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Semaphore window;
+
+    private final AtomicLong importedItems = new AtomicLong();
+    private final AtomicLong importedChunks = new AtomicLong();
+    private long skippedChunks;
+    // the first failure to record a chunk's outcome, the import stops sending chunks once it is set
+    private final AtomicReference<IOException> checkpointFailure = new AtomicReference<>();
+    // runs the inserts of the jdbc backend, null if chunks are posted to the api
+    private ExecutorService jdbcExecutor;
+
+    ChunkedItemImporter(DirectusAdministrationSdk sdk, String collection, int chunkSize, int parallelism) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        this.collection = Objects.requireNonNull(collection, "collection");
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1 but was " + chunkSize);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1 but was " + parallelism);
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.window = new Semaphore(parallelism);
+    }
+
+
+    /**
+     * @return the number of items sent with this run, chunks finished in an earlier run are not counted
+     */
+    long importItems(Path dataFile, Path checkpointFile) throws IOException, InterruptedException {
+        Objects.requireNonNull(dataFile, "dataFile");
+        Objects.requireNonNull(checkpointFile, "checkpointFile");
+
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(checkpointFile, chunkSize);
+        if (sdk.getJdbcItemStore() != null) {
+            jdbcExecutor = Executors.newFixedThreadPool(parallelism);
+        }
+        if (checkpoint.getDoneCount() > 0) {
+            logger.info("resuming import into '" + collection + "', " + checkpoint.getDoneCount() +
+                " chunks were already imported according to " + checkpointFile);
+        }
+
+        try {
+            try (JsonItemReader reader = JsonItemReader.open(dataFile)) {
+                long chunkIndex = 0;
+                JSONArray chunk = new JSONArray();
+                while (reader.hasNext() && checkpointFailure.get() == null) {
+                    chunk.put(reader.next());
+                    if (chunk.length() >= chunkSize) {
+                        send(chunkIndex++, chunk, checkpoint);
+                        chunk = new JSONArray();
+                    }
+                }
+                if (!chunk.isEmpty() && checkpointFailure.get() == null) {
+                    send(chunkIndex, chunk, checkpoint);
+                }
+            } finally {
+                // wait for the chunks in flight, their outcome still has to go into the checkpoint
+                window.acquire(parallelism);
+                window.release(parallelism);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            checkpoint.close();
+            throw e;
+        } finally {
+            if (jdbcExecutor != null) {
+                jdbcExecutor.shutdown();
+            }
+        }
+
+        if (checkpointFailure.get() != null) {
+            // the checkpoint misses chunks that were sent, so it is kept for the rerun to find out about the others
+            checkpoint.close();
+            throw new IOException("writing checkpoint " + checkpointFile + " failed, the import into '" +
+                collection + "' was stopped", checkpointFailure.get());
+        }
+        if (checkpoint.getFailedCount() > 0) {
+            checkpoint.close();
+            throw new IllegalStateException("inserting data into '" + collection + "' failed for " +
+                checkpoint.getFailedCount() + " chunks, see " + checkpointFile +
+                " for details. Rerun the import with the same checkpoint to send only the missing chunks.");
+        }
+        checkpoint.delete();
+        logger.info("inserted " + importedItems.get() + " items in " + importedChunks.get() + " chunks into '" +
+            collection + "'" + (skippedChunks > 0 ? ", skipped " + skippedChunks + " chunks imported before" : ""));
+        return importedItems.get();
+    }
+
+
+    private void send(long chunkIndex, JSONArray chunk, ImportCheckpoint checkpoint) throws InterruptedException {
+        if (checkpoint.isDone(chunkIndex)) {
+            skippedChunks++;
+            return;
+        }
+        window.acquire();
+        int itemCount = chunk.length();
+        insert(chunk).whenComplete((response, error) -> {
+            try {
+                if (error == null && (response == null || response.statusCode() == 200)) {
+                    checkpoint.markDone(chunkIndex, itemCount);
+                    long total = importedItems.addAndGet(itemCount);
+                    long chunks = importedChunks.incrementAndGet();
+                    logger.info(() -> "inserted chunk " + chunkIndex + " into '" + collection + "' (" + chunks +
+                        " chunks, " + total + " items so far)");
+                } else {
+                    logger.warning(() -> "inserting chunk " + chunkIndex + " into '" + collection + "' failed: " +
+                        failureReason(response, error));
+                    checkpoint.markFailed(chunkIndex, failureReason(response, error));
+                }
+            } catch (IOException e) {
+                checkpointFailure.compareAndSet(null, e);
+            } finally {
+                window.release();
+            }
+        });
+    }
+
+
+    /**
+     * @return the response of the api, null with the jdbc backend
+     */
+    private CompletableFuture<HttpResponse<String>> insert(JSONArray chunk) {
+        JdbcItemStore store = sdk.getJdbcItemStore();
+        if (store == null) {
+            return sdk.createItemsAsync(collection, chunk);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                store.insertItems(collection, chunk);
+                return null;
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, jdbcExecutor);
+    }
+
+
+    private static String failureReason(HttpResponse<String> response, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error != null ? String.valueOf(error) : response + "/" + (response == null ? null : response.body());
+    }
+
+}
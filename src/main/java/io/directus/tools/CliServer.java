@@ -0,0 +1,172 @@
+package io.directus.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+
+/**
+ * runs the command lines clients send on the loopback interface in this jvm, so a build calling the cli dozens
+ * of times pays for jvm start, tls handshakes and the api check only once
+ *
+ * The port and a random secret are written into the port file, readable only by the owner where the file system
+ * supports it. A client connects, sends the secret and the command line as a json array, one line each:
+ * <pre>
+ * 3f9c...
+ * ["patch", "articles.json", "--stats"]
+ * </pre>
+ * and gets the output of the command, followed by a last line with its exit status, e.g. {@code #exit 0}.
+ * {@code ["stop"]} stops the server after the running commands are done. Commands run concurrently, one per
+ * connection.
+ */
+class CliServer implements Closeable {
+
+    static final String DEFAULT_PORT_FILE = ".directus-tools.port";
+    static final String EXIT_PREFIX = "#exit ";
+    static final String STOP = "stop";
+
+    // time a client has to send its request
+    private static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    private final Logger logger = Logger.getLogger(CliServer.class.getName());
+
+    private final HttpClient httpClient;
+    private final Path portFile;
+    private final String secret;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * @param port the port to listen on, 0 for any free one
+     * @param httpClient the client shared by all commands
+     */
+    CliServer(int port, Path portFile, HttpClient httpClient) throws IOException {
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+        this.portFile = Objects.requireNonNull(portFile, "portFile");
+        this.secret = newSecret();
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        try {
+            writePortFile();
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+
+    /**
+     * accepts clients until the server is stopped or closed
+     */
+    void serve() throws IOException {
+        logger.info("serving commands on " + serverSocket.getLocalSocketAddress() + ", port file " + portFile);
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            }
+        } catch (SocketException e) {
+            if (!serverSocket.isClosed()) {
+                throw e;
+            }
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (serverSocket.isClosed()) {
+            return;
+        }
+        serverSocket.close();
+        // running commands are finished
+        executor.shutdown();
+        Files.deleteIfExists(portFile);
+        logger.info("stopped serving commands");
+    }
+
+
+    private void handle(Socket socket) {
+        try (socket) {
+            socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintStream out =
+                new PrintStream(new BufferedOutputStream(socket.getOutputStream()), true, StandardCharsets.UTF_8);
+            String clientSecret = in.readLine();
+            String request = in.readLine();
+            socket.setSoTimeout(0);
+            if (clientSecret == null || request == null || !MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), clientSecret.getBytes(StandardCharsets.UTF_8))) {
+                logger.warning("rejected a client from " + socket.getRemoteSocketAddress() +
+                    " without the secret of the port file");
+                out.println("the secret doesn't match the one in " + portFile);
+                out.println(EXIT_PREFIX + -3);
+                return;
+            }
+
+            List<String> commandLine = new ArrayList<>();
+            new JSONArray(request).forEach(a -> commandLine.add(a.toString()));
+            if (List.of(STOP).equals(commandLine)) {
+                out.println("stopping");
+                out.println(EXIT_PREFIX + 0);
+                close();
+                return;
+            }
+            long start = System.nanoTime();
+            int status = DirectusToolsCli.execute(commandLine, out, httpClient);
+            out.println(EXIT_PREFIX + status);
+            logger.info(() -> "ran " + commandLine + " with status " + status + " in " +
+                (System.nanoTime() - start) / 1_000_000 + "ms");
+        } catch (IOException | JSONException e) {
+            logger.log(Level.WARNING, "handling a client failed", e);
+        }
+    }
+
+
+    private void writePortFile() throws IOException {
+        Files.deleteIfExists(portFile);
+        try {
+            Files.createFile(portFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(portFile);
+        }
+        Files.writeString(portFile, getPort() + "\n" + secret + "\n", StandardCharsets.UTF_8);
+    }
+
+
+    private static String newSecret() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return ProjectExporter.toHex(bytes);
+    }
+
+}
@@ -0,0 +1,157 @@
+package io.directus.tools;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * sends item updates asynchronously while keeping at most {@code maxInFlight} requests open at a time
+ *
+ * {@link #submit(JSONArray)} blocks as long as the window is full, so whoever produces the batches (e.g. a
+ * page reader) is slowed down to the pace of the server instead of piling up requests in memory.
+ * A failing batch is retried row by row, rows that still fail are collected and reported by
+ * {@link #awaitCompletion()} instead of aborting the other requests.
+ */
+class ConcurrentItemUpdater {
+
+    private final Logger logger = Logger.getLogger(ConcurrentItemUpdater.class.getName());
+
+    private final DirectusAdministrationSdk sdk;
+    private final String collection;
+    private final int maxInFlight;
+    private final Semaphore window;
+
+    private final Queue<Long> failedIds = new ConcurrentLinkedQueue<>();
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicLong updatedRows = new AtomicLong();
+
+    ConcurrentItemUpdater(DirectusAdministrationSdk sdk, String collection, int maxInFlight) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        this.collection = Objects.requireNonNull(collection, "collection");
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1 but was " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.window = new Semaphore(maxInFlight);
+    }
+
+
+    /**
+     * sends the batch as soon as a slot in the window is free, each item must contain its id
+     */
+    void submit(JSONArray batch) throws InterruptedException {
+        submit(batch, null);
+    }
+
+
+    /**
+     * like {@link #submit(JSONArray)}
+     *
+     * @param onFinished if not null, called once the batch is done with true if all of its rows were updated
+     */
+    void submit(JSONArray batch, Consumer<Boolean> onFinished) throws InterruptedException {
+        Objects.requireNonNull(batch, "batch");
+        window.acquire();
+        CompletableFuture<Boolean> update;
+        try {
+            update = batch.length() == 1 ? updateRowByRow(batch) : sdk.updateValuesAsync(collection, batch)
+                .handle((response, error) -> isOk(response, error))
+                .thenCompose(ok -> {
+                    if (ok) {
+                        updatedRows.addAndGet(batch.length());
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    logger.warning(() -> "batch update of " + batch.length() + " rows in collection '" +
+                        collection + "' failed, falling back to single row updates");
+                    return updateRowByRow(batch);
+                });
+        } catch (RuntimeException e) {
+            window.release();
+            throw e;
+        }
+        update.whenComplete((success, error) -> {
+            try {
+                if (error != null) {
+                    failures.add(String.valueOf(error));
+                }
+                if (onFinished != null) {
+                    onFinished.accept(error == null && success);
+                }
+            } finally {
+                window.release();
+            }
+        });
+    }
+
+
+    /**
+     * waits until all submitted updates are done
+     *
+     * @return the ids of rows that could not be updated, empty if everything went well
+     */
+    List<Long> awaitCompletion() throws InterruptedException {
+        window.acquire(maxInFlight);
+        window.release(maxInFlight);
+        List<Long> failed = new ArrayList<>(failedIds);
+        Collections.sort(failed);
+        return failed;
+    }
+
+
+    long getUpdatedRows() {
+        return updatedRows.get();
+    }
+
+
+    /**
+     * some of the failure messages, for reporting
+     */
+    List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+
+    private CompletableFuture<Boolean> updateRowByRow(JSONArray batch) {
+        CompletableFuture<Boolean> chain = CompletableFuture.completedFuture(true);
+        for (Object object : batch) {
+            JSONObject row = (JSONObject) object;
+            long id = row.getLong("id");
+            JSONObject values = new JSONObject();
+            row.keySet().stream().filter(key -> !"id".equals(key)).forEach(key -> values.put(key, row.get(key)));
+            chain = chain
+                .thenCompose(allOk -> sdk.updateItemAsync(collection, id, values)
+                    .handle((response, error) -> {
+                        if (isOk(response, error)) {
+                            updatedRows.incrementAndGet();
+                            return allOk;
+                        }
+                        failedIds.add(id);
+                        if (failures.size() < 10) {
+                            failures.add("id " + id + ": " +
+                                (error != null ? error : response + "/" + response.body()));
+                        }
+                        return false;
+                    }));
+        }
+        return chain;
+    }
+
+
+    private static boolean isOk(HttpResponse<String> response, Throwable error) {
+        return error == null && response != null && response.statusCode() == 200;
+    }
+
+}
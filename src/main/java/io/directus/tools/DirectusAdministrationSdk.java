@@ -1,25 +1,58 @@
 package io.directus.tools;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpRequest.Builder;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodyHandlers;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 
 /**
@@ -28,8 +61,39 @@ import org.json.JSONObject;
  * 
  * This is messy because we brutally decompiled it from Kotlin to Java and cleaned it up just a tad
  * 
+ * An instance owns one long-lived {@link HttpClient}, so connections (and HTTP/2 streams where the
+ * server supports it) are reused across calls. Close the SDK when done to release the client's threads.
+ *
+ * The methods ending in {@code Async} don't block a thread while they wait for the server, their futures fail with
+ * the exception the blocking method would throw. Cancelling such a future or bounding it with
+ * {@link CompletableFuture#orTimeout(long, TimeUnit)} stops its retries and further requests, a request that was
+ * sent already runs until the request timeout. The blocking methods wait for them.
+ *
  */
-public class DirectusAdministrationSdk {
+public class DirectusAdministrationSdk implements AutoCloseable {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10L);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(60L);
+    public static final int DEFAULT_COPY_BATCH_SIZE = 100;
+    public static final int DEFAULT_COPY_PARALLELISM = 4;
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    public static final int DEFAULT_IMPORT_CHUNK_SIZE = 500;
+    public static final int DEFAULT_EXPORT_PARALLELISM = 4;
+    /**
+     * relations created or deleted per request by the bulk relation methods, deletes put the ids into the url
+     */
+    public static final int RELATION_BATCH_SIZE = 100;
+    /**
+     * number of items deleted with one request
+     */
+    public static final int DELETE_BATCH_SIZE = 100;
+    /**
+     * number of rows per statement and transaction when data is moved with sql
+     */
+    public static final int DEFAULT_JDBC_BATCH_SIZE = 5000;
+    public static final long DEFAULT_RESPONSE_CACHE_SIZE = 32L * 1024 * 1024;
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/[0-9,]+(?=/|$)");
 
     private final Logger logger = Logger.getLogger(DirectusAdministrationSdk.class.getName());
 
@@ -37,6 +101,34 @@ public class DirectusAdministrationSdk {
     private String token;
     private String projectName;
 
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    // only set if the executor was created by this instance and therefore has to be shut down by it
+    private final ExecutorService ownedExecutor;
+    private volatile boolean closed;
+
+    private int copyBatchSize = DEFAULT_COPY_BATCH_SIZE;
+    private int copyParallelism = DEFAULT_COPY_PARALLELISM;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private boolean verifyCopies = true;
+    private File journalDirectory = new File(".");
+    private SchemaCache schemaCache;
+    private volatile ResponseCache responseCache;
+    private File patchReportDirectory;
+    // only set in a dry run, then writes are recorded here instead of being sent
+    private ExecutionPlan plan;
+    // ids of fields and relations that only exist in the plan, negative so they can't clash with real ones, atomic
+    // as a migration plans independent changes in parallel
+    private final AtomicLong plannedId = new AtomicLong();
+    private RequestMetrics metrics = new SimpleRequestMetrics();
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+    private volatile RateLimiter rateLimiter;
+    private volatile boolean responseCompression = true;
+    // 0 sends all bodies uncompressed, also set when the server rejected a compressed body
+    private volatile long requestCompressionThreshold;
+    // if set, data is moved with sql on the project's database instead of the api
+    private JdbcItemStore jdbcItemStore;
+
     /**
      * uses the default project ("_")
      *
@@ -53,367 +145,1801 @@ public class DirectusAdministrationSdk {
      * @param projectPath the projects sub path
      */
     public DirectusAdministrationSdk(String apiBaseUrl, String projectName, String token) {
+        this(apiBaseUrl, projectName, token, DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, null);
+    }
+
+    /**
+     * @param apiBaseUrl  the base url to the directus api including scheme
+     * @param projectName the projects sub path
+     * @param token and admin token (e.g. a bearer token or onr set for an admin user)
+     * @param connectTimeout timeout for establishing a new connection
+     * @param requestTimeout timeout for a single request/response
+     * @param executor executor for the http client's async work, if null the SDK creates and owns one
+     */
+    public DirectusAdministrationSdk(String apiBaseUrl, String projectName, String token,
+        Duration connectTimeout, Duration requestTimeout, Executor executor) {
+        Objects.requireNonNull(connectTimeout, "connectTimeout");
         this.apiBaseUrl = apiBaseUrl;
         this.projectName = projectName;
         this.token = token;
+        this.requestTimeout = Objects.requireNonNull(requestTimeout, "requestTimeout");
+        this.ownedExecutor = executor == null ? newDaemonExecutor() : null;
+        this.httpClient = newHttpClient(connectTimeout, executor == null ? ownedExecutor : executor);
     }
 
-
     /**
-     * general get method to retrieve an object from some URL
+     * shares an existing client, e.g. between several SDK instances for different projects
+     * The client is not owned by this instance, so {@link #close()} leaves it alone.
+     *
+     * @param apiBaseUrl  the base url to the directus api including scheme
+     * @param projectName the projects sub path
+     * @param token and admin token (e.g. a bearer token or onr set for an admin user)
+     * @param httpClient the client used for all requests
+     * @param requestTimeout timeout for a single request/response
      */
-    public JSONObject getDirectusData(String urlContext) throws IOException, InterruptedException {
-        Objects.requireNonNull(urlContext, "urlContext");
-        HttpRequest request = httpRequestBuilder(urlContext).GET().build();
-        HttpResponse<String> response = sendHttpRequest(request);
-        if (response.statusCode() > 400) {
-            throw (new IllegalStateException("Error thrown when executing request '" + request.uri() + "' response: '" +
-                response + '/' + (String) response.body() + '\''));
-        }
-
-        return new JSONObject((String) response.body());
+    public DirectusAdministrationSdk(String apiBaseUrl, String projectName, String token,
+        HttpClient httpClient, Duration requestTimeout) {
+        this.apiBaseUrl = apiBaseUrl;
+        this.projectName = projectName;
+        this.token = token;
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+        this.requestTimeout = Objects.requireNonNull(requestTimeout, "requestTimeout");
+        this.ownedExecutor = null;
     }
 
 
     /**
-     * get the Directus field definition of a collection's field
+     * creates a client configured the way the SDK expects: HTTP/2 if the server supports it (falls back to
+     * HTTP/1.1 otherwise, plain http requests always use HTTP/1.1), pooled keep-alive connections and
+     * redirects followed like a browser would.
+     *
+     * The idle time of pooled connections can be tuned with the JDK system property
+     * {@code jdk.httpclient.keepalive.timeout} (seconds).
      */
-    public JSONObject getFieldDefinition(String collectionName, String fieldName)
-                    throws IOException, InterruptedException {
-        Objects.requireNonNull(collectionName, "collection");
-        Objects.requireNonNull(fieldName, "field");
-        JSONObject directusObject = getDirectusData("/fields/" + collectionName + '/' + fieldName);
-        if (!directusObject.has("data")) {
-            throw new IllegalStateException("Failed to retrieve field definition for collection '" + collectionName +
-                "' field '" + fieldName + "': no data exists");
+    public static HttpClient newHttpClient(Duration connectTimeout, Executor executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(connectTimeout);
+        if (executor != null) {
+            builder.executor(executor);
         }
+        return builder.build();
+    }
 
-        JSONObject directusData = directusObject.getJSONObject("data");
-        if (directusData.get("id") == null) {
-            throw (new IllegalStateException("Failed to retrieve field definition for collection '" + collectionName +
-                "' field '" + fieldName + "' with returned data: '" + directusData + '\''));
-        }
-        List.of("collection", "id", "group").forEach(directusData::remove);
-        return directusData;
+
+    private static ExecutorService newDaemonExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "directus-sdk-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(threadFactory);
     }
 
 
-    private void removeProblematicFieldDefinitionDefaults(JSONObject fieldDef) {
-        if ("TEXT".equalsIgnoreCase(fieldDef.getString("datatype"))) {
-            fieldDef.remove("length");
+    /**
+     * number of rows sent in one request when copying data between fields, 1 means one request per row
+     */
+    public void setCopyBatchSize(int copyBatchSize) {
+        if (copyBatchSize < 1) {
+            throw new IllegalArgumentException("copyBatchSize must be at least 1 but was " + copyBatchSize);
         }
+        this.copyBatchSize = copyBatchSize;
     }
 
 
-    private JSONObject createFieldDefFromOtherField(String collection, String newField,
-        JSONObject oldFieldDefinition) throws IOException, InterruptedException {
-        JSONObject newFieldDef = new JSONObject(oldFieldDefinition.toString());
-        removeProblematicFieldDefinitionDefaults(newFieldDef);
-        newFieldDef.put("field", newField);
-        HttpRequest request = httpRequestBuilder("/fields/" + collection)
-            .POST(BodyPublishers.ofString(newFieldDef.toString()))
-            .build();
-        HttpResponse<String> response = sendHttpRequest(request);
-        if (response.statusCode() > 400) {
-            throw (new IllegalStateException("Error thrown when executing request '" + request + "' response: '" +
-                response + '/' + (String) response.body() + '\''));
+    /**
+     * maximum number of update requests in flight while copying data between fields, 1 sends one request after
+     * the other
+     */
+    public void setCopyParallelism(int copyParallelism) {
+        if (copyParallelism < 1) {
+            throw new IllegalArgumentException("copyParallelism must be at least 1 but was " + copyParallelism);
         }
+        this.copyParallelism = copyParallelism;
+    }
 
-        JSONObject directusData = (new JSONObject((String) response.body())).getJSONObject("data");
-        if (!newField.equals(directusData.get("field"))) {
-            throw (new IllegalStateException(
-                "Failed to create field definition forcollection '" + collection + "' field '" + newField + "'." +
-                    " Old field def : '" + oldFieldDefinition + "'. Returned data: '" + directusData + '\''));
-        }
-        return directusData;
+
+    /**
+     * whether {@link #renameField(String, String, String)} checks the copied data with
+     * {@link #verifyCopy(String, String, String)} before it drops the old field, true by default
+     */
+    public void setVerifyCopies(boolean verifyCopies) {
+        this.verifyCopies = verifyCopies;
     }
 
 
-    public HttpResponse<String> updateValue(String collection, long id, String fieldName,
-        Object fieldValue) throws IOException, InterruptedException {
-        Objects.requireNonNull(collection, "collection");
-        Objects.requireNonNull(fieldName, "fieldName");
-        Objects.requireNonNull(fieldValue, "fieldValue");
-        JSONObject updateValue = (new JSONObject()).put(fieldName, fieldValue);
-        HttpRequest request = httpRequestBuilder("/items/" + collection + '/' + id)
-            .method("PATCH", BodyPublishers.ofString(updateValue.toString()))
-            .build();
-        HttpResponse<String> response = sendHttpRequest(request);
-        return response;
+    /**
+     * number of items read with one request when iterating over a collection
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1 but was " + pageSize);
+        }
+        this.pageSize = pageSize;
     }
 
+
     /**
-     * post the data from the json file to the colection item endpoint
+     * directory where the journals of field renames are kept, defaults to the working directory
      */
-    public void addData(String collectionName, File dataFile) throws IOException, InterruptedException {
-        Objects.requireNonNull(dataFile, "dataFile");
+    public void setJournalDirectory(File journalDirectory) {
+        this.journalDirectory = Objects.requireNonNull(journalDirectory, "journalDirectory");
+    }
 
-        String collectionSchema = Files.readString(dataFile.toPath());
-        logger.info("inserting data into '" + collectionName + "' using " + dataFile.getAbsolutePath());
 
-        HttpRequest request = httpRequestBuilder("/items/" + collectionName)
-            .method("POST", BodyPublishers.ofString(collectionSchema.toString()))
-            .build();
-        HttpResponse<String> response = sendHttpRequest(request);
+    /**
+     * if set, {@link #patch(File)} writes the changes it caused as json into this directory, null (the default)
+     * writes no files
+     */
+    public void setPatchReportDirectory(File patchReportDirectory) {
+        this.patchReportDirectory = patchReportDirectory;
+    }
 
-        if (response == null || response.statusCode() != 200) {
-            throw new IllegalStateException(
-                "inserting data '" + collectionName + "' failed. Response: '" + response +
-                    '/' + (String) response.body() + '\'');
-        }
 
-        logger.info("inserted data into " + collectionName + '\'');
+    /**
+     * how failed requests are retried, by default up to {@value RetryPolicy#DEFAULT_MAX_ATTEMPTS} attempts with
+     * exponential backoff. {@link RetryPolicy#NONE} sends every request once.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
     }
 
-    public void copyDataFromFieldToField(String collection, String oldFieldName, String newFieldName)
-                    throws IOException, InterruptedException {
-        Objects.requireNonNull(collection, "collection");
-        Objects.requireNonNull(oldFieldName, "oldFieldName");
-        Objects.requireNonNull(newFieldName, "newFieldName");
 
-        JSONArray existingItems =
-            getDirectusData("/items/" + collection + "?fields=id," + oldFieldName).getJSONArray("data");
+    /**
+     * limits the rate of all requests of this instance, including parallel copies and imports. Null (the
+     * default) sends requests as fast as the server answers.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
 
-        for (Object object : existingItems) {
-            if (!(object instanceof JSONObject)) {
-                throw (new IllegalStateException("'" + object + "' is not the expected JSONObject type "));
-            }
 
-            JSONObject jsonObj = (JSONObject) object;
-            if (jsonObj.has(oldFieldName) && !jsonObj.isNull(oldFieldName)) {
+    /**
+     * whether responses are requested with {@code Accept-Encoding: gzip}, true by default. Compressed responses are
+     * inflated while they are received.
+     */
+    public void setResponseCompression(boolean responseCompression) {
+        this.responseCompression = responseCompression;
+    }
 
-                long id = jsonObj.getLong("id");
-                Object existingValue = jsonObj.get(oldFieldName);
 
-                HttpResponse<String> updateResponse = updateValue(collection, id, newFieldName, existingValue);
-                if (updateResponse == null || updateResponse.statusCode() != 200) {
-                    throw (new IllegalStateException(
-                        "update for field '" + newFieldName + "' in collection '" + collection + "' failed for " +
-                            jsonObj + ". Response:: " + updateResponse));
-                }
-            }
+    /**
+     * request bodies of at least this many bytes are sent compressed with gzip, 0 (the default) sends all bodies
+     * uncompressed. If the server answers a compressed body with 415, the request is sent again uncompressed and so
+     * are all later requests of this instance.
+     */
+    public void setRequestCompressionThreshold(long requestCompressionThreshold) {
+        if (requestCompressionThreshold < 0) {
+            throw new IllegalArgumentException("requestCompressionThreshold must not be negative but was " +
+                requestCompressionThreshold);
         }
+        this.requestCompressionThreshold = requestCompressionThreshold;
     }
 
 
     /**
-     * originally this was using gihub diffutils but it increases the jar size to
-     * 
-     * @param collectionName
-     * @param before
-     * @param after
-     * @throws IOException
-     * @throws DiffException
+     * replaces the default {@link SimpleRequestMetrics}, e.g. with an adapter to a metrics library
      */
-    private void checkForDifferences(String collectionName, JSONObject before, JSONObject after)
-                    throws IOException {
-        String beforeString = before.toString(2);
-        String afterString = after.toString(2);
-
-        String dateString = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmm"));
+    public void setMetrics(RequestMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+    }
 
-        File beforeFile =
-            File.createTempFile("patch." + collectionName + '.' + dateString + ".before.", ".tmp", new File("."));
-        Files.writeString(beforeFile.toPath(), beforeString);
 
-        File afterFile =
-            File.createTempFile("patch." + collectionName + '.' + dateString + ".after.", ".tmp", new File("."));
-        Files.writeString(afterFile.toPath(), afterString);
+    /**
+     * @return where the measurements of all requests of this instance go, by default a
+     *         {@link SimpleRequestMetrics}
+     */
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
 
-        List<String> listBefore = Files.readAllLines(beforeFile.toPath(), Charset.defaultCharset());
-        List<String> listAfter = Files.readAllLines(afterFile.toPath(), Charset.defaultCharset());
 
-        if (listBefore.equals(listAfter)) {
-            logger.info("No changes");
-            beforeFile.delete();
-            afterFile.delete();
-        } else {
-            logger
-                .info("Changes were applied check these files for more details: '" + beforeFile.getPath() + "' and '" +
-                    afterFile.getPath() +
-                    '\'');
+    /**
+     * keeps collections, fields and relations in memory (loaded in one pass on first use) so metadata lookups
+     * don't go to the server again. Writes through this SDK update the snapshot. Lookups of things that are
+     * not in the snapshot are still checked against the server.
+     *
+     * @param timeToLive how long a loaded snapshot is used before it is loaded again
+     * @param directory if not null the snapshot is also written to a file in this directory, keyed by server and
+     *            project, and later SDK instances start from that file while it is fresh
+     * @return the cache, e.g. to evict it explicitly
+     */
+    public SchemaCache enableSchemaCache(Duration timeToLive, File directory) {
+        if (plan != null) {
+            throw new IllegalStateException("the schema cache cannot be changed in a dry run");
         }
+        Path file = directory == null ? null : directory.toPath().resolve(
+            "schema." + apiBaseUrl.replaceAll("[^A-Za-z0-9]+", "_") + '.' + projectName + ".json");
+        schemaCache = new SchemaCache(this, timeToLive, file, Clock.systemUTC());
+        return schemaCache;
     }
 
 
-    public void patch(File schemaFile) throws IOException, InterruptedException {
-        Objects.requireNonNull(schemaFile, "schemaFile");
+    /**
+     * @return the schema cache or null if it isn't enabled
+     */
+    public SchemaCache getSchemaCache() {
+        return schemaCache;
+    }
 
-        String collectionSchema = Files.readString(schemaFile.toPath());
-        String collectionName = readCollectionNameFromSchema(schemaFile, collectionSchema);
 
-        logger.info("patching collection '" + collectionName + "' using " + schemaFile.getAbsolutePath());
+    /**
+     * caches the responses of {@link #getDirectusData(String)} (except item reads) in memory and answers later reads
+     * of the same url from it: with a conditional request if the server sent an {@code ETag} or
+     * {@code Last-Modified}, without a request for {@code timeToLive} otherwise. Writes through this SDK drop the
+     * entries they may change.
+     *
+     * @param maxBytes the size of all cached bodies, the least recently used are dropped beyond it
+     * @param timeToLive how long a response without validators is used without asking the server
+     * @param directory if not null entries are also written to files in this directory, keyed by server, project
+     *            and token, and later SDK instances read them from there
+     * @return the cache, e.g. for its hit and miss counts
+     * @see ResponseCache
+     */
+    public ResponseCache enableResponseCache(long maxBytes, Duration timeToLive, File directory) {
+        responseCache = new ResponseCache(maxBytes, timeToLive, directory == null ? null : directory.toPath(),
+            apiBaseUrl + '/' + projectName + ' ' + token, Clock.systemUTC());
+        return responseCache;
+    }
 
-        JSONObject before = getDirectusData("/collections/" + collectionName);
 
-        HttpRequest request = httpRequestBuilder("/collections/" + collectionName)
-            .method("PATCH", BodyPublishers.ofString(collectionSchema.toString()))
-            .build();
-        HttpResponse<String> response = sendHttpRequest(request);
+    /**
+     * @return the response cache or null if it isn't enabled
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
 
-        if (response == null || response.statusCode() != 200) {
-            throw new IllegalStateException(
-                "patching collection '" + collectionName + "' failed. Response: '" + response +
-                    '/' + (String) response.body() + '\'');
-        }
 
-        JSONObject after = getDirectusData("/collections/" + collectionName);
-        checkForDifferences(collectionName, before, after);
-        logger.info("patched collection '" + collectionName + '\'');
+    /**
+     * switches this instance into a dry run: from now on no writes are sent to the server, they are recorded in
+     * the returned plan instead. The current schema is loaded in one pass and the planned writes are applied to
+     * this in-memory copy only, so later steps see the effects of earlier ones (e.g. renaming a field of a
+     * collection created before). Steps that move data are estimated with a count query.
+     * 
+     * A dry run cannot be switched off again, use a new instance for the real run.
+     *
+     * @return the plan the writes are recorded in
+     */
+    public synchronized ExecutionPlan enableDryRun() {
+        if (plan == null) {
+            schemaCache = new SchemaCache(this, Duration.ofMillis(Long.MAX_VALUE), null, Clock.systemUTC());
+            plan = new ExecutionPlan();
+        }
+        return plan;
     }
 
 
-    public void createCollection(File schemaFile) throws IOException, InterruptedException {
-        Objects.requireNonNull(schemaFile, "schemaFile");
+    public boolean isDryRun() {
+        return plan != null;
+    }
 
-        String collectionSchema = Files.readString(schemaFile.toPath());
-        String collectionName = readCollectionNameFromSchema(schemaFile, collectionSchema);
 
-        logger.info("creating collection '" + collectionName + "' using " + schemaFile.getAbsolutePath());
+    /**
+     * moves data with sql on the project's database instead of the api, in batches of
+     * {@value #DEFAULT_JDBC_BATCH_SIZE} rows
+     *
+     * @see #enableJdbcBackend(String, String, String, int)
+     */
+    public void enableJdbcBackend(String jdbcUrl, String user, String password) throws IOException {
+        enableJdbcBackend(jdbcUrl, user, password, DEFAULT_JDBC_BATCH_SIZE);
+    }
 
-        HttpRequest request = httpRequestBuilder("/collections")
-            .method("POST", BodyPublishers.ofString(collectionSchema.toString()))
-            .build();
-        HttpResponse<String> response = sendHttpRequest(request);
 
-        if (response == null || response.statusCode() != 200) {
-            throw new IllegalStateException(
-                "creating collection '" + collectionName + "' failed. Response: '" + response +
-                    '/' + (String) response.body() + '\'');
+    /**
+     * moves data with sql on the project's database instead of the api: copying field values (and so the copy of
+     * {@link #renameField(String, String, String)}), {@link #importData(String, File, int, int, File)} and
+     * {@link #deleteItems(String, Collection)}. Collections, fields and relations are still created and dropped
+     * via the api, so Directus knows about them.
+     *
+     * A copy is one {@code UPDATE} per {@code batchSize} rows, an import chunk one JDBC batch and a delete one
+     * statement per {@code batchSize} ids, each in its own transaction. The JDBC driver of the database has to be on
+     * the class path. Directus doesn't see these writes: they aren't recorded as revisions or activity, no hooks
+     * run and its cache, if enabled, isn't cleared.
+     *
+     * @param jdbcUrl the url of the project's database, e.g. {@code jdbc:mysql://localhost:3306/directus}
+     * @throws IOException if the database can't be reached
+     */
+    public void enableJdbcBackend(String jdbcUrl, String user, String password, int batchSize) throws IOException {
+        JdbcItemStore store = new JdbcItemStore(jdbcUrl, user, password, batchSize);
+        try {
+            store.checkConnection();
+        } catch (SQLException e) {
+            throw new IOException("connecting to " + jdbcUrl + " failed", e);
         }
+        jdbcItemStore = store;
+    }
 
-        logger.info("created collection '" + collectionName + '\'');
+
+    /**
+     * @return the store moving data with sql, null if the api is used
+     */
+    JdbcItemStore getJdbcItemStore() {
+        return jdbcItemStore;
     }
 
 
     /**
-     * drops the collections with the passed name
-     * This first checks if the collection actually exists
-     * @param collectionName
-     * @throws IOException
-     * @throws InterruptedException
+     * @return the plan of the dry run or null if this is not a dry run
      */
-    public void dropCollectionIfExists(String collectionName) throws IOException, InterruptedException {
-        Objects.requireNonNull(collectionName, "collectionName");
+    public ExecutionPlan getPlan() {
+        return plan;
+    }
 
-        logger.info("dropping collection '" + collectionName + "'  including all data.");
 
-        // check if the collection exists to make this rerunnable
-        HttpResponse<String> response = sendHttpRequest(httpRequestBuilder("/collections/" + collectionName).GET().build());
-        if (response.statusCode() == 404) {
-            logger.info("collection '" + collectionName + "' does not exist.");
-            return;
+    /**
+     * releases the threads of the executor created by this instance. A client or executor passed in by the
+     * caller is not touched. The SDK cannot be used anymore afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
         }
+    }
 
-        HttpRequest request = httpRequestBuilder("/collections/" + collectionName)
-            .DELETE()
-            .build();
-        response = sendHttpRequest(request);
 
-        if (response == null || response.statusCode() != 204) {
-            throw new IllegalStateException(
-                "dropping collection '" + collectionName + "' failed. Response: '"
-                        + response + '/' + (String) response.body() + '\'');
+    /**
+     * general get method to retrieve an object from some URL
+     */
+    public JSONObject getDirectusData(String urlContext) throws IOException, InterruptedException {
+        Objects.requireNonNull(urlContext, "urlContext");
+        if (responseCache != null && ResponseCache.isCacheable(urlContext)) {
+            // a cached response has to be held as text anyway, so there is nothing to gain from streaming
+            return await(getDirectusDataAsync(urlContext));
+        }
+        HttpRequest request = httpRequestBuilder(urlContext).GET().build();
+        HttpResponse<InputStream> response = sendHttpRequest(request, BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() > 400) {
+                throw (new IllegalStateException("Error thrown when executing request '" + request.uri() +
+                    "' response: '" + response + '/' + new String(body.readAllBytes(), StandardCharsets.UTF_8) +
+                    '\''));
+            }
+            return parseResponse(request, body);
         }
-
-        logger.info("dropped collection '" + collectionName + '\'');
     }
 
 
-    public void dropField(String collectionName, String fieldName) throws IOException, InterruptedException {
-        Objects.requireNonNull(collectionName, "collection");
-        Objects.requireNonNull(fieldName, "field");
-        logger.info("dropping field '" + fieldName + "' from collection '" + collectionName + '\'');
-
-        HttpRequest request = httpRequestBuilder("/fields/" + collectionName + '/' + fieldName).DELETE().build();
+    /**
+     * like {@link #getDirectusData(String)} without blocking a thread, the body is parsed once it was received
+     * completely
+     */
+    public CompletableFuture<JSONObject> getDirectusDataAsync(String urlContext) {
+        Objects.requireNonNull(urlContext, "urlContext");
+        return asyncCall(call -> getDirectusDataAsync(urlContext, call));
+    }
 
-        getFieldDefinition(collectionName, fieldName);
-        HttpResponse<String> response = sendHttpRequest(request);
 
-        if (response == null || (response.statusCode() != 204 && response.statusCode() != 404)) {
-            throw new IllegalStateException("deleting field '" + fieldName + "' from collection '" + collectionName +
-                "' failed response: '" + response + '/' + (String) response.body() + '\'');
+    private CompletableFuture<JSONObject> getDirectusDataAsync(String urlContext, CompletableFuture<?> call) {
+        ResponseCache cache = responseCache;
+        if (cache != null && ResponseCache.isCacheable(urlContext)) {
+            return getCachedDataAsync(urlContext, cache, call);
         }
-        logger.info("dropped field '" + fieldName + "' from collection '" + collectionName + '\'');
+        HttpRequest request = httpRequestBuilder(urlContext).GET().build();
+        return sendHttpRequestAsync(request, BodyHandlers.ofString(), call).thenApply(response -> {
+            if (response.statusCode() > 400) {
+                throw (new IllegalStateException("Error thrown when executing request '" + request.uri() +
+                    "' response: '" + response + '/' + response.body() + '\''));
+            }
+            return parseResponse(response);
+        });
     }
 
 
-    public void createM2ORelation(String manyCollection, String manyField, String oneCollection,
-        String fieldOne) throws IOException, InterruptedException {
-        Objects.requireNonNull(manyCollection, "manyCollection");
-        Objects.requireNonNull(manyField, "manyField");
-        Objects.requireNonNull(oneCollection, "oneCollection");
-        logger.info("creating relation for manyCollection: '" + manyCollection + "', manyField: '" + manyField +
-            "', oneCollection: '" + oneCollection + "', fieldOne: '" + fieldOne + '\'');
-
-        JSONObject newRelation = new JSONObject();
-        newRelation.put("collection_many", manyCollection);
-        newRelation.put("field_many", manyField);
-        newRelation.put("collection_one", oneCollection);
-        if (fieldOne != null) {
-            newRelation.put("field_one", fieldOne);
+    private CompletableFuture<JSONObject> getCachedDataAsync(String urlContext, ResponseCache cache,
+        CompletableFuture<?> call) {
+        Builder builder = httpRequestBuilder(urlContext).GET();
+        HttpRequest plainRequest = builder.build();
+        String uri = plainRequest.uri().toString();
+        String path = pathOf(plainRequest);
+        ResponseCache.Entry entry = cache.get(uri, path);
+        if (entry != null && !entry.hasValidators()) {
+            cache.hit(false);
+            return CompletableFuture.completedFuture(new JSONObject(entry.body));
+        }
+        if (entry != null && entry.etag != null) {
+            builder.header("If-None-Match", entry.etag);
         }
+        if (entry != null && entry.lastModified != null) {
+            builder.header("If-Modified-Since", entry.lastModified);
+        }
+        HttpRequest request = builder.build();
+        return sendHttpRequestAsync(request, BodyHandlers.ofString(), call).thenApply(response -> {
+            if (response.statusCode() == 304 && entry != null) {
+                cache.hit(true);
+                return new JSONObject(entry.body);
+            }
+            if (response.statusCode() > 400) {
+                throw (new IllegalStateException("Error thrown when executing request '" + request.uri() +
+                    "' response: '" + response + '/' + response.body() + '\''));
+            }
+            cache.miss(uri, path, response);
+            return parseResponse(response);
+        });
+    }
 
-        HttpRequest request = httpRequestBuilder("/relations")
-            .POST(BodyPublishers.ofString(newRelation.toString()))
-            .build();
-        HttpResponse<String> response = sendHttpRequest(request);
 
-        if (response == null || response.statusCode() != 200) {
-            throw new IllegalStateException("created relation for manyCollection: '" + manyCollection + '\'' +
-                ", manyField: '" + manyField + "', oneCollection: '" + oneCollection + "', fieldOne: '" + fieldOne +
-                "'\"." + "failed response: '" + response + '/' + (String) response.body() + '\'');
-        }
+    /**
+     * streams all items of a collection ordered by id, reading the collection page by page so only one page
+     * is held in memory at a time. Unlike a plain {@code /items/} call this is not cut off by the server's
+     * default limit, nor by a maximum limit below the page size.
+     *
+     * @param fields the fields to read, the id is always included; none reads all fields
+     */
+    public Stream<JSONObject> streamItems(String collection, String... fields) {
+        return streamItems(collection, null, fields);
+    }
 
-        logger.info("created relation for manyCollection: '" + manyCollection + "', manyField: '" + manyField +
-            "', oneCollection: '" + oneCollection + "', fieldOne: '" + fieldOne + '\'');
+
+    /**
+     * like {@link #streamItems(String, String...)} but only returns items with an id greater than
+     * {@code afterId}, e.g. to continue reading after an interruption
+     */
+    public Stream<JSONObject> streamItems(String collection, Long afterId, String... fields) {
+        Objects.requireNonNull(collection, "collection");
+        String fieldList = fields.length == 0 ? null : Arrays.stream(fields)
+            .filter(f -> !"id".equals(f))
+            .collect(Collectors.joining(","));
+        Iterator<JSONObject> iterator = new DirectusItemIterator(this, collection, fieldList, afterId, pageSize);
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+
+    /**
+     * writes all items of a collection as newline delimited json (one item per line) into {@code targetFile}
+     *
+     * @return the number of exported items
+     */
+    public long exportItems(String collection, File targetFile) throws IOException {
+        Objects.requireNonNull(collection, "collection");
+        Objects.requireNonNull(targetFile, "targetFile");
+        logger.info("exporting items of collection '" + collection + "' to " + targetFile.getAbsolutePath());
+
+        long count = 0;
+        try (Writer writer = Files.newBufferedWriter(targetFile.toPath(), StandardCharsets.UTF_8);
+            Stream<JSONObject> items = streamItems(collection)) {
+            for (Iterator<JSONObject> iterator = items.iterator(); iterator.hasNext();) {
+                iterator.next().write(writer);
+                writer.write('\n');
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        logger.info("exported " + count + " items of collection '" + collection + '\'');
+        return count;
+    }
+
+
+    /**
+     * backs up the schema and the items of collections into a directory: {@code schema.json} with their
+     * collections, fields and relations, one gzip'd ndjson file per collection and a {@code manifest.json} with
+     * the item count and sha-256 of every file. The manifest is written last, a directory without one holds an
+     * incomplete export.
+     *
+     * Up to {@code parallelism} collections are exported at the same time, each one read page by page and
+     * compressed while it is written, so the memory needed doesn't grow with the size of the project.
+     *
+     * @param collections the collections to export, none for all collections except the directus system
+     *        collections
+     * @return the manifest
+     */
+    public JSONObject exportProject(File targetDirectory, int parallelism, String... collections)
+                    throws IOException, InterruptedException {
+        Objects.requireNonNull(targetDirectory, "targetDirectory");
+        logger.info("exporting " + (collections.length == 0 ? "all collections" : Arrays.toString(collections)) +
+            " to " + targetDirectory.getAbsolutePath());
+        return new ProjectExporter(this, apiBaseUrl + '/' + projectName, parallelism)
+            .export(targetDirectory.toPath(), List.of(collections));
+    }
+
+
+    /**
+     * restores an export of {@link #exportProject(File, int, String...)} into this project, which must not have
+     * any of the exported collections yet: creates the collections with their fields, then the relations, then
+     * imports the items in chunks, {@code parallelism} collections at a time and each after the collections its
+     * relations point to. Files are checked against the checksums of the manifest before they are used and the
+     * item counts are compared with the manifest afterwards.
+     *
+     * If the restore fails, running it again continues where it stopped, see the
+     * {@code restore.<target>.journal} in the export directory.
+     *
+     * @return the number of items imported by this run
+     */
+    public long restoreProject(File exportDirectory, int chunkSize, int parallelism)
+                    throws IOException, InterruptedException {
+        Objects.requireNonNull(exportDirectory, "exportDirectory");
+        logger.info("restoring " + exportDirectory.getAbsolutePath() + " into " + apiBaseUrl + '/' + projectName);
+        return new ProjectRestorer(this, apiBaseUrl + '/' + projectName, chunkSize, parallelism)
+            .restore(exportDirectory.toPath());
+    }
+
+
+    /**
+     * reads all collections, fields and relations with one request each, normalized like
+     * {@link #getFieldDefinition(String, String)} and keyed by name, see {@link SchemaDiff}
+     */
+    public JSONObject getSchemaSnapshot() throws IOException, InterruptedException {
+        return SchemaDiff.snapshots(List.of(this)).get(0);
+    }
+
+
+    /**
+     * compares the schemas of two projects: the collections, fields and relations of both are read concurrently
+     * with one request per endpoint and diffed in memory
+     *
+     * @return the differences from {@code before} to {@code after}, empty if the schemas are the same
+     */
+    public static List<JsonDiff.Change> diffSchemas(DirectusAdministrationSdk before, DirectusAdministrationSdk after)
+                    throws IOException, InterruptedException {
+        return SchemaDiff.diff(before, after);
+    }
+
+
+    /**
+     * get the Directus field definition of a collection's field
+     */
+    public JSONObject getFieldDefinition(String collectionName, String fieldName)
+                    throws IOException, InterruptedException {
+        return await(getFieldDefinitionAsync(collectionName, fieldName));
+    }
+
+
+    public CompletableFuture<JSONObject> getFieldDefinitionAsync(String collectionName, String fieldName) {
+        Objects.requireNonNull(collectionName, "collection");
+        Objects.requireNonNull(fieldName, "field");
+        return asyncCall(call -> getFieldDefinitionAsync(collectionName, fieldName, call));
+    }
+
+
+    private CompletableFuture<JSONObject> getFieldDefinitionAsync(String collectionName, String fieldName,
+        CompletableFuture<?> call) {
+        return callBlocking(() -> schemaCache == null ? null : schemaCache.getField(collectionName, fieldName))
+            .thenCompose(cachedField -> {
+                if (cachedField != null) {
+                    return CompletableFuture.completedFuture(
+                        toFieldDefinition(collectionName, fieldName, new JSONObject().put("data", cachedField)));
+                }
+                if (plan != null) {
+                    // the snapshot of a dry run has the planned changes, the server doesn't
+                    return CompletableFuture.completedFuture(
+                        toFieldDefinition(collectionName, fieldName, new JSONObject()));
+                }
+                return getDirectusDataAsync("/fields/" + collectionName + '/' + fieldName, call)
+                    .thenApply(directusObject -> {
+                        cacheField(collectionName, directusObject);
+                        return toFieldDefinition(collectionName, fieldName, directusObject);
+                    });
+            });
+    }
+
+
+    private void cacheField(String collectionName, JSONObject directusObject) {
+        if (schemaCache != null && directusObject.optJSONObject("data") != null) {
+            schemaCache.putField(collectionName, new JSONObject(directusObject.getJSONObject("data").toString()));
+        }
+    }
+
+
+    private JSONObject toFieldDefinition(String collectionName, String fieldName, JSONObject directusObject) {
+        if (!directusObject.has("data")) {
+            throw new IllegalStateException("Failed to retrieve field definition for collection '" + collectionName +
+                "' field '" + fieldName + "': no data exists");
+        }
+
+        JSONObject directusData = directusObject.getJSONObject("data");
+        if (directusData.get("id") == null) {
+            throw (new IllegalStateException("Failed to retrieve field definition for collection '" + collectionName +
+                "' field '" + fieldName + "' with returned data: '" + directusData + '\''));
+        }
+        List.of("collection", "id", "group").forEach(directusData::remove);
+        return directusData;
+    }
+
+
+    static void removeProblematicFieldDefinitionDefaults(JSONObject fieldDef) {
+        if ("TEXT".equalsIgnoreCase(fieldDef.optString("datatype"))) {
+            fieldDef.remove("length");
+        }
+    }
+
+
+    private JSONObject createFieldDefFromOtherField(String collection, String newField,
+        JSONObject oldFieldDefinition) throws IOException, InterruptedException {
+        JSONObject newFieldDef = new JSONObject(oldFieldDefinition.toString());
+        removeProblematicFieldDefinitionDefaults(newFieldDef);
+        newFieldDef.put("field", newField);
+        HttpRequest request = httpRequestBuilder("/fields/" + collection)
+            .POST(JsonBodyPublisher.of(newFieldDef))
+            .build();
+        HttpResponse<String> response = sendHttpRequest(request);
+        if (response.statusCode() > 400) {
+            throw (new IllegalStateException("Error thrown when executing request '" + request + "' response: '" +
+                response + '/' + (String) response.body() + '\''));
+        }
+
+        JSONObject directusData = (new JSONObject((String) response.body())).getJSONObject("data");
+        if (!newField.equals(directusData.get("field"))) {
+            throw (new IllegalStateException(
+                "Failed to create field definition forcollection '" + collection + "' field '" + newField + "'." +
+                    " Old field def : '" + oldFieldDefinition + "'. Returned data: '" + directusData + '\''));
+        }
+        cacheField(collection, new JSONObject().put("data", directusData));
+        return directusData;
+    }
+
+
+    /**
+     * @return the response, null in a dry run
+     */
+    public HttpResponse<String> updateValue(String collection, long id, String fieldName,
+        Object fieldValue) throws IOException, InterruptedException {
+        return await(updateValueAsync(collection, id, fieldName, fieldValue));
+    }
+
+
+    /**
+     * @return the response, null in a dry run
+     */
+    public CompletableFuture<HttpResponse<String>> updateValueAsync(String collection, long id, String fieldName,
+        Object fieldValue) {
+        Objects.requireNonNull(collection, "collection");
+        Objects.requireNonNull(fieldName, "fieldName");
+        Objects.requireNonNull(fieldValue, "fieldValue");
+        if (plan != null) {
+            plan.add("PATCH", "/items/" + collection + '/' + id, "update field '" + fieldName + '\'', 1L, null, null,
+                null);
+            return CompletableFuture.completedFuture(null);
+        }
+        JSONObject updateValue = (new JSONObject()).put(fieldName, fieldValue);
+        HttpRequest request = httpRequestBuilder("/items/" + collection + '/' + id)
+            .method("PATCH", JsonBodyPublisher.of(updateValue))
+            .build();
+        return asyncCall(call -> sendHttpRequestAsync(request, BodyHandlers.ofString(), call));
+    }
+
+
+    /**
+     * updates several items with one request, each item must contain its id and the fields to update
+     * 
+     * @return the response, null in a dry run
+     */
+    public HttpResponse<String> updateValues(String collection, JSONArray items)
+                    throws IOException, InterruptedException {
+        return await(updateValuesAsync(collection, items));
+    }
+
+
+    /**
+     * @return the response, null in a dry run
+     * @see #updateValues(String, JSONArray)
+     */
+    public CompletableFuture<HttpResponse<String>> updateValuesAsync(String collection, JSONArray items) {
+        Objects.requireNonNull(collection, "collection");
+        Objects.requireNonNull(items, "items");
+        if (plan != null) {
+            plan.add("PATCH", "/items/" + collection, "update items", (long) items.length(), null, null, null);
+            return CompletableFuture.completedFuture(null);
+        }
+        HttpRequest request = httpRequestBuilder("/items/" + collection)
+            .method("PATCH", JsonBodyPublisher.of(items))
+            .build();
+        return asyncCall(call -> sendHttpRequestAsync(request, BodyHandlers.ofString(), call));
+    }
+
+
+    CompletableFuture<HttpResponse<String>> updateItemAsync(String collection, long id, JSONObject values) {
+        HttpRequest request = httpRequestBuilder("/items/" + collection + '/' + id)
+            .method("PATCH", JsonBodyPublisher.of(values))
+            .build();
+        return sendHttpRequestAsync(request);
+    }
+
+    /**
+     * post the data from the json file to the colection item endpoint
+     */
+    public void addData(String collectionName, File dataFile) throws IOException, InterruptedException {
+        Objects.requireNonNull(dataFile, "dataFile");
+        if (plan != null) {
+            plan.add("POST", "/items/" + collectionName, "insert items of " + dataFile.getPath(),
+                countFileItems(dataFile), null, null, findMissingCollection(collectionName));
+            return;
+        }
+
+        logger.info("inserting data into '" + collectionName + "' using " + dataFile.getAbsolutePath());
+
+        HttpRequest request = httpRequestBuilder("/items/" + collectionName)
+            .method("POST", BodyPublishers.ofFile(dataFile.toPath()))
+            .build();
+        HttpResponse<String> response = sendHttpRequest(request);
+
+        if (response == null || response.statusCode() != 200) {
+            throw new IllegalStateException(
+                "inserting data '" + collectionName + "' failed. Response: '" + response +
+                    '/' + (String) response.body() + '\'');
+        }
+
+        logger.info("inserted data into " + collectionName + '\'');
+    }
+
+    /**
+     * streams the items of a json array or ndjson file in chunks of {@value #DEFAULT_IMPORT_CHUNK_SIZE} into the
+     * collection, one chunk at a time. Progress is recorded in {@code <dataFile>.checkpoint}.
+     * 
+     * @see #importData(String, File, int, int, File)
+     */
+    public long importData(String collectionName, File dataFile) throws IOException, InterruptedException {
+        Objects.requireNonNull(dataFile, "dataFile");
+        return importData(collectionName, dataFile, DEFAULT_IMPORT_CHUNK_SIZE, 1,
+            new File(dataFile.getPath() + ".checkpoint"));
+    }
+
+
+    /**
+     * unlike {@link #addData(String, File)} this does not load the file into memory but reads it item by item
+     * and posts the items in chunks of {@code chunkSize}, with up to {@code parallelism} chunks in flight.
+     * 
+     * The outcome of every chunk is written to {@code checkpointFile}. If chunks fail the import still carries
+     * on and fails at the end, running it again with the same file and checkpoint only sends the failed and
+     * missing chunks. The checkpoint is removed once everything was imported.
+     * 
+     * @param dataFile either a json array of items or newline delimited json with one item per line
+     * @return the number of items inserted by this run
+     */
+    public long importData(String collectionName, File dataFile, int chunkSize, int parallelism,
+        File checkpointFile) throws IOException, InterruptedException {
+        Objects.requireNonNull(collectionName, "collectionName");
+        Objects.requireNonNull(dataFile, "dataFile");
+        Objects.requireNonNull(checkpointFile, "checkpointFile");
+        if (plan != null) {
+            long count = countFileItems(dataFile);
+            plan.add(jdbcItemStore == null ? "POST" : "SQL", "/items/" + collectionName, "import items of " +
+                dataFile.getPath() + " in chunks of " +
+                chunkSize, count, (count + chunkSize - 1) / chunkSize, null, findMissingCollection(collectionName));
+            return 0;
+        }
+        logger.info("importing data into '" + collectionName + "' using " + dataFile.getAbsolutePath() +
+            " in chunks of " + chunkSize);
+
+        return new ChunkedItemImporter(this, collectionName, chunkSize, parallelism)
+            .importItems(dataFile.toPath(), checkpointFile.toPath());
+    }
+
+
+    /**
+     * deletes the items with these ids, {@value #DELETE_BATCH_SIZE} per request or, with the jdbc backend, one
+     * statement and transaction per batch
+     *
+     * @return the number of ids deleted, 0 in a dry run
+     */
+    public long deleteItems(String collection, Collection<Long> ids) throws IOException, InterruptedException {
+        Objects.requireNonNull(collection, "collection");
+        Objects.requireNonNull(ids, "ids");
+        List<Long> idList = new ArrayList<>(ids);
+        if (plan != null) {
+            int batchSize = jdbcItemStore == null ? DELETE_BATCH_SIZE : jdbcItemStore.getBatchSize();
+            plan.add(jdbcItemStore == null ? "DELETE" : "SQL", "/items/" + collection, "delete items",
+                (long) idList.size(), (long) batchCount(idList.size(), batchSize), null,
+                findMissingCollection(collection));
+            return 0;
+        }
+        if (jdbcItemStore != null) {
+            try {
+                long deleted = jdbcItemStore.deleteItems(collection, idList);
+                logger.info("deleted " + deleted + " items of collection '" + collection + "' with sql");
+                return deleted;
+            } catch (SQLException e) {
+                throw new IOException("deleting items of collection '" + collection + "' with sql on " +
+                    jdbcItemStore.getJdbcUrl() + " failed", e);
+            }
+        }
+
+        for (int start = 0; start < idList.size(); start += DELETE_BATCH_SIZE) {
+            String idString = idList.subList(start, Math.min(start + DELETE_BATCH_SIZE, idList.size())).stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+            HttpResponse<String> response =
+                sendHttpRequest(httpRequestBuilder("/items/" + collection + '/' + idString).DELETE().build());
+            // 404: a retried delete whose first attempt went through
+            if (response == null || (response.statusCode() != 204 && response.statusCode() != 404)) {
+                throw new IllegalStateException("deleting items of collection '" + collection + "' with ids '" +
+                    idString + "' failed. Response: '" + response + '/' + (String) response.body() + '\'');
+            }
+        }
+        logger.info("deleted " + idList.size() + " items of collection '" + collection + '\'');
+        return idList.size();
+    }
+
+
+    CompletableFuture<HttpResponse<String>> createItemsAsync(String collection, JSONArray items) {
+        HttpRequest request = httpRequestBuilder("/items/" + collection)
+            .POST(JsonBodyPublisher.of(items))
+            .build();
+        return sendHttpRequestAsync(request);
+    }
+
+
+    /**
+     * copies the data using the configured copy batch size and parallelism
+     * 
+     * @see #setCopyBatchSize(int)
+     * @see #setCopyParallelism(int)
+     */
+    public void copyDataFromFieldToField(String collection, String oldFieldName, String newFieldName)
+                    throws IOException, InterruptedException {
+        copyDataFromFieldToField(collection, oldFieldName, newFieldName, copyBatchSize, copyParallelism);
+    }
+
+
+    /**
+     * copies the values of {@code oldFieldName} into {@code newFieldName} for every item that has a non null
+     * value. Rows are sent in batches of {@code batchSize} items per request, if a batch fails its rows are
+     * retried one by one so a single bad row only fails itself.
+     */
+    public void copyDataFromFieldToField(String collection, String oldFieldName, String newFieldName,
+        int batchSize) throws IOException, InterruptedException {
+        copyDataFromFieldToField(collection, oldFieldName, newFieldName, batchSize, 1);
+    }
+
+
+    /**
+     * like {@link #copyDataFromFieldToField(String, String, String, int)} but with up to {@code parallelism}
+     * update requests in flight. Reading pages is throttled to the pace of the updates. Rows that fail are
+     * collected and reported together once all other rows have been copied.
+     */
+    public void copyDataFromFieldToField(String collection, String oldFieldName, String newFieldName,
+        int batchSize, int parallelism) throws IOException, InterruptedException {
+        copyDataFromFieldToField(collection, oldFieldName, newFieldName, batchSize, parallelism, null);
+    }
+
+
+    /**
+     * @param journal if not null the copy continues after the journal's copied mark, only rows whose new value
+     *            differs from the old value are sent and progress is written to the journal
+     */
+    private void copyDataFromFieldToField(String collection, String oldFieldName, String newFieldName,
+        int batchSize, int parallelism, RenameJournal journal) throws IOException, InterruptedException {
+        Objects.requireNonNull(collection, "collection");
+        Objects.requireNonNull(oldFieldName, "oldFieldName");
+        Objects.requireNonNull(newFieldName, "newFieldName");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1 but was " + batchSize);
+        }
+        if (plan != null) {
+            planCopy(collection, oldFieldName, newFieldName, batchSize, journal);
+            return;
+        }
+        if (jdbcItemStore != null) {
+            copyWithSql(collection, oldFieldName, newFieldName, journal);
+            return;
+        }
+        ConcurrentItemUpdater updater =
+            parallelism > 1 ? new ConcurrentItemUpdater(this, collection, parallelism) : null;
+
+        Long afterId = journal == null ? null : journal.getCopiedUntil();
+        Stream<JSONObject> items = journal == null ? streamItems(collection, oldFieldName)
+                        : streamItems(collection, afterId, oldFieldName, newFieldName);
+
+        JSONArray batch = new JSONArray();
+        Iterator<JSONObject> existingItems = items.iterator();
+        try {
+            while (existingItems.hasNext()) {
+                JSONObject jsonObj = existingItems.next();
+                if (jsonObj.has(oldFieldName) && !jsonObj.isNull(oldFieldName) &&
+                    !(journal != null && jsonObj.has(newFieldName) &&
+                        isSameValue(jsonObj.get(oldFieldName), jsonObj.get(newFieldName)))) {
+                    batch.put(new JSONObject()
+                        .put("id", jsonObj.getLong("id"))
+                        .put(newFieldName, jsonObj.get(oldFieldName)));
+                    if (batch.length() >= batchSize) {
+                        copyBatch(collection, newFieldName, batch, updater, journal);
+                        batch = new JSONArray();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                copyBatch(collection, newFieldName, batch, updater, journal);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (updater != null) {
+                // don't leave requests running in the background, even if reading failed
+                updater.awaitCompletion();
+            }
+        }
+        if (updater != null) {
+            awaitConcurrentCopy(collection, newFieldName, updater);
+        }
+    }
+
+
+    /**
+     * copies with one {@code UPDATE} per batch of the jdbc backend, the batch size and parallelism of the api
+     * don't apply
+     */
+    private void copyWithSql(String collection, String oldFieldName, String newFieldName, RenameJournal journal)
+                    throws IOException {
+        Long afterId = journal == null ? null : journal.getCopiedUntil();
+        long start = System.nanoTime();
+        try {
+            long rows = jdbcItemStore.copyColumn(collection, oldFieldName, newFieldName, afterId, lastId -> {
+                if (journal != null) {
+                    journal.batchFinished(journal.startBatch(lastId), true);
+                }
+            });
+            logger.info("copied " + rows + " rows into field '" + newFieldName + "' of collection '" + collection +
+                "' with sql in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        } catch (SQLException e) {
+            throw new IOException("copying field '" + oldFieldName + "' into '" + newFieldName + "' of collection '" +
+                collection + "' with sql on " + jdbcItemStore.getJdbcUrl() + " failed", e);
+        }
+    }
+
+
+    private void planCopy(String collection, String oldFieldName, String newFieldName, int batchSize,
+        RenameJournal journal) throws IOException, InterruptedException {
+        Long afterId = journal == null ? null : journal.getCopiedUntil();
+        Long rows = countItems(collection, "&filter[" + oldFieldName + "][nnull]=1" +
+            (afterId == null ? "" : "&filter[id][gt]=" + afterId));
+        String failure = findMissingCollection(collection);
+        if (failure == null && findFieldDefinition(collection, oldFieldName) == null) {
+            failure = "field '" + oldFieldName + "' doesn't exist in collection '" + collection + '\'';
+        } else if (failure == null && findFieldDefinition(collection, newFieldName) == null) {
+            failure = "field '" + newFieldName + "' doesn't exist in collection '" + collection + '\'';
+        }
+        int rowsPerStep = jdbcItemStore == null ? batchSize : jdbcItemStore.getBatchSize();
+        plan.add(jdbcItemStore == null ? "PATCH" : "SQL", "/items/" + collection, "copy '" + oldFieldName +
+            "' into '" + newFieldName + '\'' + (afterId == null ? "" : " after id " + afterId), rows,
+            rows == null ? null : (rows + rowsPerStep - 1) / rowsPerStep, null, failure);
+    }
+
+
+    /**
+     * counts the items of a collection with {@code meta=filter_count}
+     * 
+     * @param filter the filter query parameters starting with {@code &}, e.g. {@code &filter[title][nnull]=1}, or
+     *            an empty string for all items
+     * @return the number of matching items or null if the server didn't count them, e.g. because the collection
+     *         only exists in a dry run's plan
+     */
+    Long countItems(String collection, String filter) throws IOException, InterruptedException {
+        HttpResponse<String> response = sendHttpRequest(httpRequestBuilder("/items/" + collection +
+            "?fields=id&limit=1&meta=filter_count" + filter).GET().build());
+        if (response.statusCode() != 200) {
+            logger.info("counting items of '" + collection + "' failed. Response: " + response);
+            return null;
+        }
+        JSONObject meta = new JSONObject(response.body()).optJSONObject("meta");
+        return meta == null || !meta.has("filter_count") ? null : meta.getLong("filter_count");
+    }
+
+
+    private static long countFileItems(File dataFile) throws IOException {
+        long count = 0;
+        try (JsonItemReader reader = JsonItemReader.open(dataFile.toPath())) {
+            for (; reader.hasNext(); reader.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * @return the reason a planned write to the collection would fail or null if the collection exists
+     */
+    private String findMissingCollection(String collection) throws IOException, InterruptedException {
+        return schemaCache.getCollection(collection) == null ? "collection '" + collection + "' doesn't exist"
+                        : null;
+    }
+
+
+    private void awaitConcurrentCopy(String collection, String newFieldName, ConcurrentItemUpdater updater)
+                    throws InterruptedException {
+        List<Long> failedIds = updater.awaitCompletion();
+        if (!failedIds.isEmpty()) {
+            throw new IllegalStateException("update for field '" + newFieldName + "' in collection '" + collection +
+                "' failed for " + failedIds.size() + " rows with ids " + failedIds + ". First failures: " +
+                updater.getFailures());
+        }
+        logger.info("copied " + updater.getUpdatedRows() + " rows into field '" + newFieldName +
+            "' of collection '" + collection + '\'');
+    }
+
+
+    private void copyBatch(String collection, String newFieldName, JSONArray batch, ConcurrentItemUpdater updater,
+        RenameJournal journal) throws IOException, InterruptedException {
+        long journalBatch = journal == null ? -1 : journal.startBatch(batch.getJSONObject(batch.length() - 1)
+            .getLong("id"));
+        if (updater != null) {
+            updater.submit(batch, journal == null ? null : success -> journal.batchFinished(journalBatch, success));
+        } else {
+            copyBatch(collection, newFieldName, batch);
+            if (journal != null) {
+                journal.batchFinished(journalBatch, true);
+            }
+        }
+    }
+
+
+    private void copyBatch(String collection, String newFieldName, JSONArray batch)
+                    throws IOException, InterruptedException {
+        if (batch.length() > 1) {
+            HttpResponse<String> batchResponse = updateValues(collection, batch);
+            if (batchResponse != null && batchResponse.statusCode() == 200) {
+                return;
+            }
+            logger.warning(() -> "batch update of " + batch.length() + " rows for field '" + newFieldName +
+                "' in collection '" + collection + "' failed, falling back to single row updates. Response: " +
+                batchResponse + '/' + (batchResponse == null ? null : batchResponse.body()));
+        }
+
+        for (Object object : batch) {
+            JSONObject row = (JSONObject) object;
+            HttpResponse<String> updateResponse =
+                updateValue(collection, row.getLong("id"), newFieldName, row.get(newFieldName));
+            if (updateResponse == null || updateResponse.statusCode() != 200) {
+                throw (new IllegalStateException(
+                    "update for field '" + newFieldName + "' in collection '" + collection + "' failed for " +
+                        row + ". Response:: " + updateResponse));
+            }
+        }
+    }
+
+
+    /**
+     * originally this was using gihub diffutils but it increases the jar size to
+     * 
+     * compares the documents in memory, a report file is only written if a report directory is set
+     * 
+     * @see #setPatchReportDirectory(File)
+     */
+    private List<JsonDiff.Change> checkForDifferences(String collectionName, JSONObject before, JSONObject after)
+                    throws IOException {
+        List<JsonDiff.Change> changes = JsonDiff.diff(before, after);
+        if (changes.isEmpty()) {
+            logger.info("No changes");
+            return changes;
+        }
+
+        logger.info(() -> changes.size() + " changes were applied to collection '" + collectionName + "':\n" +
+            changes.stream().map(JsonDiff.Change::toString).collect(Collectors.joining("\n")));
+        if (patchReportDirectory != null) {
+            String dateString = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss"));
+            Path reportFile = patchReportDirectory.toPath()
+                .resolve("patch." + collectionName + '.' + dateString + ".diff.json");
+            JSONObject report = new JSONObject()
+                .put("collection", collectionName)
+                .put("changes", JsonDiff.toJson(changes));
+            Files.writeString(reportFile, report.toString(2), StandardCharsets.UTF_8);
+            logger.info("wrote change report " + reportFile);
+        }
+        return changes;
+    }
+
+
+    /**
+     * patches the collection with the schema file
+     * 
+     * @return the differences between the collection before and after the patch, empty if nothing changed
+     */
+    public List<JsonDiff.Change> patch(File schemaFile) throws IOException, InterruptedException {
+        return await(patchAsync(schemaFile));
+    }
+
+
+    /**
+     * @see #patch(File)
+     */
+    public CompletableFuture<List<JsonDiff.Change>> patchAsync(File schemaFile) {
+        Objects.requireNonNull(schemaFile, "schemaFile");
+
+        String collectionSchema;
+        try {
+            collectionSchema = Files.readString(schemaFile.toPath());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String collectionName = readCollectionNameFromSchema(schemaFile, collectionSchema);
+
+        logger.info("patching collection '" + collectionName + "' using " + schemaFile.getAbsolutePath());
+        if (plan != null) {
+            return callBlocking(() -> planPatch(collectionName, new JSONObject(collectionSchema)));
+        }
+
+        return asyncCall(call -> callBlocking(
+            () -> schemaCache == null ? null : schemaCache.getCollection(collectionName))
+                .thenCompose(cachedCollection -> cachedCollection != null
+                                ? CompletableFuture.completedFuture(new JSONObject().put("data", cachedCollection))
+                                : getDirectusDataAsync("/collections/" + collectionName, call))
+                .thenCompose(before -> {
+                    HttpRequest request;
+                    try {
+                        request = httpRequestBuilder("/collections/" + collectionName)
+                            .method("PATCH", BodyPublishers.ofFile(schemaFile.toPath()))
+                            .build();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    return sendHttpRequestAsync(request, BodyHandlers.ofString(), call)
+                        .thenCompose(response -> {
+                            if (response == null || response.statusCode() != 200) {
+                                throw new IllegalStateException(
+                                    "patching collection '" + collectionName + "' failed. Response: '" + response +
+                                        '/' + (String) response.body() + '\'');
+                            }
+                            if (schemaCache != null) {
+                                // the patch response has the collection as stored by the server, no need to fetch
+                                // it again
+                                JSONObject after = new JSONObject(response.body());
+                                schemaCache.putCollection(new JSONObject(after.getJSONObject("data").toString()));
+                                return CompletableFuture.completedFuture(after);
+                            }
+                            return getDirectusDataAsync("/collections/" + collectionName, call);
+                        })
+                        .thenApply(after -> {
+                            try {
+                                List<JsonDiff.Change> changes = checkForDifferences(collectionName, before, after);
+                                logger.info("patched collection '" + collectionName + '\'');
+                                return changes;
+                            } catch (IOException e) {
+                                throw new CompletionException(e);
+                            }
+                        });
+                }));
+    }
+
+
+    /**
+     * applies the patch to the dry run's snapshot, the changes are computed the same way as for a real patch
+     */
+    private List<JsonDiff.Change> planPatch(String collectionName, JSONObject patchData)
+                    throws IOException, InterruptedException {
+        String path = "/collections/" + collectionName;
+        JSONObject current = schemaCache.getCollection(collectionName);
+        if (current == null) {
+            plan.add("PATCH", path, "patch collection '" + collectionName + '\'', null, null, null,
+                findMissingCollection(collectionName));
+            return List.of();
+        }
+        if (current.optJSONObject("fields") == null) {
+            JSONObject fields = new JSONObject();
+            schemaCache.getFields(collectionName).forEach(f -> fields.put(f.getString("field"), f));
+            current.put("fields", fields);
+        }
+        JSONObject patched = mergePatch(new JSONObject(current.toString()), patchData);
+        List<JsonDiff.Change> changes = JsonDiff.diff(new JSONObject().put("data", current),
+            new JSONObject().put("data", patched));
+        plan.add("PATCH", path, "patch collection '" + collectionName + "', " + changes.size() + " changes", null,
+            null, changes, null);
+        JSONObject patchedFields = patched.optJSONObject("fields");
+        if (patchedFields != null) {
+            patchedFields.keySet().stream().map(patchedFields::getJSONObject).filter(f -> !f.has("id"))
+                .forEach(f -> f.put("id", plannedId.decrementAndGet()));
+        }
+        schemaCache.putCollection(patched);
+        return changes;
+    }
+
+
+    /**
+     * merges the values of {@code patch} into {@code target} the way the api applies a collection patch, fields
+     * may be given as array or as object keyed by field name
+     */
+    private static JSONObject mergePatch(JSONObject target, JSONObject patch) {
+        for (String key : patch.keySet()) {
+            Object value = patch.get(key);
+            Object existing = target.opt(key);
+            if ("fields".equals(key) && value instanceof JSONArray && existing instanceof JSONObject) {
+                for (Object field : (JSONArray) value) {
+                    JSONObject fieldPatch = (JSONObject) field;
+                    JSONObject fieldData = ((JSONObject) existing).optJSONObject(fieldPatch.getString("field"));
+                    if (fieldData == null) {
+                        fieldData = new JSONObject().put("collection", target.opt("collection"));
+                        ((JSONObject) existing).put(fieldPatch.getString("field"), fieldData);
+                    }
+                    mergePatch(fieldData, fieldPatch);
+                }
+            } else if (value instanceof JSONObject && existing instanceof JSONObject) {
+                mergePatch((JSONObject) existing, (JSONObject) value);
+            } else {
+                target.put(key, value);
+            }
+        }
+        return target;
+    }
+
+
+    public void createCollection(File schemaFile) throws IOException, InterruptedException {
+        await(createCollectionAsync(schemaFile));
+    }
+
+
+    /**
+     * @see #createCollection(File)
+     */
+    public CompletableFuture<Void> createCollectionAsync(File schemaFile) {
+        Objects.requireNonNull(schemaFile, "schemaFile");
+
+        String collectionSchema;
+        BodyPublisher body;
+        try {
+            collectionSchema = Files.readString(schemaFile.toPath());
+            body = BodyPublishers.ofFile(schemaFile.toPath());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String collectionName = readCollectionNameFromSchema(schemaFile, collectionSchema);
+
+        logger.info("creating collection '" + collectionName + "' using " + schemaFile.getAbsolutePath());
+        return asyncCall(call -> createCollectionAsync(collectionName, collectionSchema, body, call));
+    }
+
+
+    /**
+     * creates a collection from its schema, the same json as in a schema file
+     */
+    public void createCollection(JSONObject collectionSchema) throws IOException, InterruptedException {
+        await(createCollectionAsync(collectionSchema));
+    }
+
+
+    /**
+     * @see #createCollection(JSONObject)
+     */
+    public CompletableFuture<Void> createCollectionAsync(JSONObject collectionSchema) {
+        Objects.requireNonNull(collectionSchema, "collectionSchema");
+        if (!collectionSchema.has("collection")) {
+            throw new IllegalStateException("Cannot find collection attribute in passed schema " + collectionSchema);
+        }
+        String collectionName = collectionSchema.getString("collection");
+
+        logger.info("creating collection '" + collectionName + '\'');
+        return asyncCall(call -> createCollectionAsync(collectionName, collectionSchema.toString(),
+            JsonBodyPublisher.of(collectionSchema), call));
+    }
+
+
+    private CompletableFuture<Void> createCollectionAsync(String collectionName, String collectionSchema,
+        BodyPublisher body, CompletableFuture<?> call) {
+        if (plan != null) {
+            return callBlocking(() -> {
+                planCreateCollection(collectionName, collectionSchema);
+                return null;
+            });
+        }
+
+        HttpRequest request = httpRequestBuilder("/collections")
+            .method("POST", body)
+            .build();
+        return sendHttpRequestAsync(request, BodyHandlers.ofString(), call).thenAccept(response -> {
+            if (response == null || response.statusCode() != 200) {
+                throw new IllegalStateException(
+                    "creating collection '" + collectionName + "' failed. Response: '" + response +
+                        '/' + (String) response.body() + '\'');
+            }
+            if (schemaCache != null) {
+                schemaCache.putCollection(new JSONObject(response.body()).getJSONObject("data"));
+            }
+
+            logger.info("created collection '" + collectionName + '\'');
+        });
+    }
+
+
+    private void planCreateCollection(String collectionName, String collectionSchema)
+                    throws IOException, InterruptedException {
+        boolean exists = schemaCache.getCollection(collectionName) != null;
+        JSONObject collectionData = new JSONObject(collectionSchema);
+        Object fields = collectionData.opt("fields");
+        int fieldCount = fields instanceof JSONArray ? ((JSONArray) fields).length()
+                        : fields instanceof JSONObject ? ((JSONObject) fields).length() : 0;
+        plan.add("POST", "/collections", "create collection '" + collectionName + "' with " + fieldCount +
+            " fields", null, null, null, exists ? "collection '" + collectionName + "' exists already" : null);
+        if (!exists) {
+            if (fields instanceof JSONArray) {
+                ((JSONArray) fields).forEach(f -> ((JSONObject) f).put("id", plannedId.decrementAndGet()));
+            } else if (fields instanceof JSONObject) {
+                ((JSONObject) fields).keySet().forEach(f -> ((JSONObject) fields).getJSONObject(f)
+                    .put("id", plannedId.decrementAndGet()));
+            }
+            schemaCache.putCollection(collectionData);
+        }
+    }
+
+
+    /**
+     * drops the collections with the passed name
+     * This first checks if the collection actually exists
+     * @param collectionName
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void dropCollectionIfExists(String collectionName) throws IOException, InterruptedException {
+        await(dropCollectionIfExistsAsync(collectionName));
+    }
+
+
+    /**
+     * @see #dropCollectionIfExists(String)
+     */
+    public CompletableFuture<Void> dropCollectionIfExistsAsync(String collectionName) {
+        Objects.requireNonNull(collectionName, "collectionName");
+
+        logger.info("dropping collection '" + collectionName + "'  including all data.");
+
+        if (plan != null) {
+            return callBlocking(() -> {
+                if (schemaCache.getCollection(collectionName) == null) {
+                    logger.info("collection '" + collectionName + "' does not exist.");
+                } else {
+                    plan.add("DELETE", "/collections/" + collectionName, "drop collection '" + collectionName +
+                        "' including all data", countItems(collectionName, ""), null, null, null);
+                    schemaCache.removeCollection(collectionName);
+                }
+                return null;
+            });
+        }
+
+        return asyncCall(call -> callBlocking(
+            () -> schemaCache == null || schemaCache.getCollection(collectionName) == null)
+                .thenCompose(check -> !check ? CompletableFuture.completedFuture(true)
+                                // check if the collection exists to make this rerunnable
+                                : sendHttpRequestAsync(httpRequestBuilder("/collections/" + collectionName).GET()
+                                    .build(), BodyHandlers.ofString(), call)
+                                        .thenApply(response -> response.statusCode() != 404))
+                .thenCompose(exists -> {
+                    if (!exists) {
+                        logger.info("collection '" + collectionName + "' does not exist.");
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    HttpRequest request = httpRequestBuilder("/collections/" + collectionName)
+                        .DELETE()
+                        .build();
+                    return sendHttpRequestAsync(request, BodyHandlers.ofString(), call).thenAccept(response -> {
+                        if (response == null || (response.statusCode() != 204 && response.statusCode() != 404)) {
+                            throw new IllegalStateException(
+                                "dropping collection '" + collectionName + "' failed. Response: '"
+                                        + response + '/' + (String) response.body() + '\'');
+                        }
+                        if (schemaCache != null) {
+                            schemaCache.removeCollection(collectionName);
+                        }
+
+                        logger.info("dropped collection '" + collectionName + '\'');
+                    });
+                }));
+    }
+
+
+    public void dropField(String collectionName, String fieldName) throws IOException, InterruptedException {
+        await(dropFieldAsync(collectionName, fieldName));
+    }
+
+
+    /**
+     * @see #dropField(String, String)
+     */
+    public CompletableFuture<Void> dropFieldAsync(String collectionName, String fieldName) {
+        Objects.requireNonNull(collectionName, "collection");
+        Objects.requireNonNull(fieldName, "field");
+        logger.info("dropping field '" + fieldName + "' from collection '" + collectionName + '\'');
+
+        if (plan != null) {
+            return callBlocking(() -> {
+                plan.add("DELETE", "/fields/" + collectionName + '/' + fieldName, "drop field '" + fieldName + '\'',
+                    null, null, null, findFieldDefinition(collectionName, fieldName) == null ? "field '" +
+                        fieldName + "' doesn't exist in collection '" + collectionName + '\'' : null);
+                schemaCache.removeField(collectionName, fieldName);
+                return null;
+            });
+        }
+
+        HttpRequest request = httpRequestBuilder("/fields/" + collectionName + '/' + fieldName).DELETE().build();
+
+        return asyncCall(call -> getFieldDefinitionAsync(collectionName, fieldName, call)
+            .thenCompose(fieldDefinition -> sendHttpRequestAsync(request, BodyHandlers.ofString(), call))
+            .thenAccept(response -> {
+                if (response == null || (response.statusCode() != 204 && response.statusCode() != 404)) {
+                    throw new IllegalStateException("deleting field '" + fieldName + "' from collection '" +
+                        collectionName + "' failed response: '" + response + '/' + (String) response.body() + '\'');
+                }
+                if (schemaCache != null) {
+                    schemaCache.removeField(collectionName, fieldName);
+                }
+                logger.info("dropped field '" + fieldName + "' from collection '" + collectionName + '\'');
+            }));
+    }
+
+
+    public void createM2ORelation(String manyCollection, String manyField, String oneCollection,
+        String fieldOne) throws IOException, InterruptedException {
+        await(createM2ORelationAsync(manyCollection, manyField, oneCollection, fieldOne));
+    }
+
+
+    /**
+     * @see #createM2ORelation(String, String, String, String)
+     */
+    public CompletableFuture<Void> createM2ORelationAsync(String manyCollection, String manyField,
+        String oneCollection, String fieldOne) {
+        Objects.requireNonNull(manyCollection, "manyCollection");
+        Objects.requireNonNull(manyField, "manyField");
+        Objects.requireNonNull(oneCollection, "oneCollection");
+        logger.info("creating relation for manyCollection: '" + manyCollection + "', manyField: '" + manyField +
+            "', oneCollection: '" + oneCollection + "', fieldOne: '" + fieldOne + '\'');
+
+        JSONObject newRelation = new JSONObject();
+        newRelation.put("collection_many", manyCollection);
+        newRelation.put("field_many", manyField);
+        newRelation.put("collection_one", oneCollection);
+        if (fieldOne != null) {
+            newRelation.put("field_one", fieldOne);
+        }
+
+        if (plan != null) {
+            return callBlocking(() -> {
+                String failure = findMissingCollection(manyCollection);
+                plan.add("POST", "/relations", "create relation " + manyCollection + '.' + manyField + " -> " +
+                    oneCollection + (fieldOne == null ? "" : '.' + fieldOne), null, null, null,
+                    failure != null ? failure : findMissingCollection(oneCollection));
+                schemaCache.putRelation(new JSONObject(newRelation.toString()).put("id", plannedId.decrementAndGet()));
+                return null;
+            });
+        }
+
+        HttpRequest request = httpRequestBuilder("/relations")
+            .POST(JsonBodyPublisher.of(newRelation))
+            .build();
+        return asyncCall(call -> sendHttpRequestAsync(request, BodyHandlers.ofString(), call).thenAccept(response -> {
+            if (response == null || response.statusCode() != 200) {
+                throw new IllegalStateException("created relation for manyCollection: '" + manyCollection + '\'' +
+                    ", manyField: '" + manyField + "', oneCollection: '" + oneCollection + "', fieldOne: '" +
+                    fieldOne + "'\"." + "failed response: '" + response + '/' + (String) response.body() + '\'');
+            }
+            if (schemaCache != null) {
+                schemaCache.putRelation(new JSONObject(response.body()).getJSONObject("data"));
+            }
+
+            logger.info("created relation for manyCollection: '" + manyCollection + "', manyField: '" + manyField +
+                "', oneCollection: '" + oneCollection + "', fieldOne: '" + fieldOne + '\'');
+        }));
     }
 
 
     public void deleteM2ORelation(String manyCollection, Object manyField, String oneCollection,
         String fieldOne) throws IOException, InterruptedException {
+        await(deleteM2ORelationAsync(manyCollection, manyField, oneCollection, fieldOne));
+    }
+
+
+    /**
+     * @see #deleteM2ORelation(String, Object, String, String)
+     */
+    public CompletableFuture<Void> deleteM2ORelationAsync(String manyCollection, Object manyField,
+        String oneCollection, String fieldOne) {
         Objects.requireNonNull(manyCollection, "manyCollection");
         Objects.requireNonNull(manyField, "manyField");
         Objects.requireNonNull(oneCollection, "oneCollection");
         logger.info("deleting relations for manyCollection: '" + manyCollection + "', manyField: '" + manyField +
             "', oneCollection: '" + oneCollection + "', fieldOne: '" + fieldOne + '\'');
 
-        JSONObject directusObject = getDirectusData("/relations?fields=id&filter[collection_many][eq]=" +
-            manyCollection + "&filter[field_many][eq]=" + manyField + "&filter[collection_one][eq]=" + oneCollection +
-            (fieldOne == null ? "&filter[field_one][null]=1"
-                            : "&filter[field_one][eq]=" + fieldOne + "&filter[junction_field][null]=1"));
+        return asyncCall(call -> callBlocking(
+            () -> findCachedM2ORelations(manyCollection, manyField, oneCollection, fieldOne))
+                .thenCompose(cachedRelations -> {
+                    if (cachedRelations != null) {
+                        return CompletableFuture.completedFuture(cachedRelations);
+                    }
+                    if (plan != null) {
+                        return CompletableFuture.completedFuture(new JSONObject());
+                    }
+                    return getDirectusDataAsync("/relations?fields=id&filter[collection_many][eq]=" +
+                        manyCollection + "&filter[field_many][eq]=" + manyField + "&filter[collection_one][eq]=" +
+                        oneCollection + (fieldOne == null ? "&filter[field_one][null]=1"
+                                        : "&filter[field_one][eq]=" + fieldOne + "&filter[junction_field][null]=1"),
+                        call);
+                })
+                .thenCompose(directusObject -> {
+                    if (!directusObject.has("data") || directusObject.getJSONArray("data").isEmpty()) {
+                        logger.severe("Couldn't find entry for relations for manyCollection: '${manyCollection}'," +
+                            " manyField: '${manyField}', oneCollection: '${oneCollection}', fieldOne: '${fieldOne}'");
+                        return CompletableFuture.completedFuture(null);
+                    }
+
+                    JSONArray existingRelations = directusObject.getJSONArray("data");
+                    List<Long> ids = new ArrayList<>();
+                    for (Object object : existingRelations) {
+                        if (!(object instanceof JSONObject)) {
+                            throw (new IllegalStateException("'" + object + "' is not the expected JSONObject type "));
+                        }
+                        ids.add(((JSONObject) object).getLong("id"));
+                    }
+                    if (plan != null) {
+                        plan.add("DELETE", "/relations/{ids}", "delete " + ids.size() + " relations " +
+                            manyCollection + '.' + manyField + " -> " + oneCollection +
+                            (fieldOne == null ? "" : '.' + fieldOne), (long) ids.size(),
+                            (long) batchCount(ids.size(), RELATION_BATCH_SIZE), null, null);
+                        ids.forEach(schemaCache::removeRelation);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return deleteRelationsAsync(ids, call);
+                }));
+    }
+
+
+    /**
+     * creates the M2O relations of a manifest, a json array of relations
+     *
+     * @see #createM2ORelations(JSONArray)
+     */
+    public int createM2ORelations(File manifestFile) throws IOException, InterruptedException {
+        Objects.requireNonNull(manifestFile, "manifestFile");
+        logger.info("creating relations of " + manifestFile.getAbsolutePath());
+        return createM2ORelations(readRelationManifest(manifestFile));
+    }
+
+
+    /**
+     * creates the M2O relations with one request per {@value #RELATION_BATCH_SIZE} relations
+     *
+     * @param relations objects with {@code collection_many}, {@code field_many}, {@code collection_one} and
+     *        optionally {@code field_one}, other attributes of a relation are sent as they are
+     * @return the number of relations created
+     */
+    public int createM2ORelations(JSONArray relations) throws IOException, InterruptedException {
+        Objects.requireNonNull(relations, "relations");
+        List<JSONObject> newRelations = toM2ORelations(relations);
+        logger.info("creating " + newRelations.size() + " relations in batches of " + RELATION_BATCH_SIZE);
+
+        if (plan != null) {
+            String failure = null;
+            for (JSONObject relation : newRelations) {
+                failure = failure != null ? failure : findMissingCollection(relation.getString("collection_many"));
+                failure = failure != null ? failure : findMissingCollection(relation.getString("collection_one"));
+                schemaCache.putRelation(new JSONObject(relation.toString()).put("id", plannedId.decrementAndGet()));
+            }
+            plan.add("POST", "/relations", "create " + newRelations.size() + " relations", (long) newRelations.size(),
+                (long) batchCount(newRelations.size(), RELATION_BATCH_SIZE), null, failure);
+            return 0;
+        }
+
+        for (int start = 0; start < newRelations.size(); start += RELATION_BATCH_SIZE) {
+            JSONArray batch = new JSONArray(newRelations.subList(start,
+                Math.min(start + RELATION_BATCH_SIZE, newRelations.size())));
+            HttpRequest request = httpRequestBuilder("/relations")
+                .POST(JsonBodyPublisher.of(batch))
+                .build();
+            HttpResponse<String> response = sendHttpRequest(request);
+
+            if (response == null || response.statusCode() != 200) {
+                throw new IllegalStateException("creating relations " + start + " to " +
+                    (start + batch.length() - 1) + " failed, " + start + " relations were created. Response: '" +
+                    response + '/' + (String) response.body() + '\'');
+            }
+            if (schemaCache != null) {
+                new JSONObject(response.body()).getJSONArray("data")
+                    .forEach(r -> schemaCache.putRelation((JSONObject) r));
+            }
+        }
+        logger.info("created " + newRelations.size() + " relations");
+        return newRelations.size();
+    }
+
+
+    /**
+     * deletes the M2O relations of a manifest, a json array of relations
+     *
+     * @see #deleteM2ORelations(JSONArray)
+     */
+    public int deleteM2ORelations(File manifestFile) throws IOException, InterruptedException {
+        Objects.requireNonNull(manifestFile, "manifestFile");
+        logger.info("deleting relations of " + manifestFile.getAbsolutePath());
+        return deleteM2ORelations(readRelationManifest(manifestFile));
+    }
+
 
-        if (!directusObject.has("data") || directusObject.getJSONArray("data").isEmpty()) {
-            logger.severe("Couldn't find entry for relations for manyCollection: '${manyCollection}'," +
-                " manyField: '${manyField}', oneCollection: '${oneCollection}', fieldOne: '${fieldOne}'");
-            return;
+    /**
+     * deletes all M2O relations matching one of the passed relations, like
+     * {@link #deleteM2ORelation(String, Object, String, String)} for each of them but with one request to find the
+     * relations and one request per {@value #RELATION_BATCH_SIZE} relations to delete them
+     *
+     * @param relations objects with {@code collection_many}, {@code field_many}, {@code collection_one} and
+     *        optionally {@code field_one}
+     * @return the number of relations deleted
+     */
+    public int deleteM2ORelations(JSONArray relations) throws IOException, InterruptedException {
+        Objects.requireNonNull(relations, "relations");
+        List<JSONObject> wantedRelations = toM2ORelations(relations);
+        logger.info("deleting relations matching " + wantedRelations.size() + " relation definitions");
+
+        List<JSONObject> existingRelations;
+        if (schemaCache != null) {
+            existingRelations = schemaCache.getRelations();
+        } else {
+            existingRelations = new ArrayList<>();
+            getDirectusData("/relations?fields=id,collection_many,field_many,collection_one,field_one,junction_field" +
+                "&limit=-1").getJSONArray("data").forEach(r -> existingRelations.add((JSONObject) r));
+        }
+        List<Long> ids = new ArrayList<>();
+        for (JSONObject relation : existingRelations) {
+            for (JSONObject wanted : wantedRelations) {
+                if (isM2ORelation(relation, wanted.getString("collection_many"), wanted.getString("field_many"),
+                    wanted.getString("collection_one"), wanted.optString("field_one", null))) {
+                    ids.add(relation.getLong("id"));
+                    break;
+                }
+            }
+        }
+        if (ids.size() < wantedRelations.size()) {
+            logger.warning(() -> "found " + ids.size() + " relations for " + wantedRelations.size() +
+                " relation definitions, some don't exist");
+        }
+
+        if (plan != null) {
+            plan.add("DELETE", "/relations/{ids}", "delete " + ids.size() + " relations", (long) ids.size(),
+                (long) batchCount(ids.size(), RELATION_BATCH_SIZE), null, null);
+            ids.forEach(schemaCache::removeRelation);
+            return 0;
+        }
+        deleteRelations(ids);
+        return ids.size();
+    }
+
+
+    /**
+     * deletes the relations with one request per {@value #RELATION_BATCH_SIZE} ids
+     */
+    private void deleteRelations(List<Long> ids) throws IOException, InterruptedException {
+        await(asyncCall(call -> deleteRelationsAsync(ids, call)));
+    }
+
+
+    /**
+     * sends the batches one after the other, so a failure leaves the relations of the later batches alone
+     */
+    private CompletableFuture<Void> deleteRelationsAsync(List<Long> ids, CompletableFuture<?> call) {
+        CompletableFuture<Void> deleted = CompletableFuture.completedFuture(null);
+        for (int start = 0; start < ids.size(); start += RELATION_BATCH_SIZE) {
+            List<Long> batch = ids.subList(start, Math.min(start + RELATION_BATCH_SIZE, ids.size()));
+            String idList = batch.stream().map(String::valueOf).collect(Collectors.joining(","));
+            deleted = deleted.thenCompose(v -> sendHttpRequestAsync(
+                httpRequestBuilder("/relations/" + idList).DELETE().build(), BodyHandlers.ofString(), call)).thenAccept(response -> {
+                    // 404: a retried delete whose first attempt went through
+                    if (response == null || (response.statusCode() != 204 && response.statusCode() != 404)) {
+                        throw new IllegalStateException("deleting relations with ids '" + idList +
+                            "' failed. Response: '" + response + '/' + (String) response.body() + '\'');
+                    }
+                    if (schemaCache != null) {
+                        batch.forEach(schemaCache::removeRelation);
+                    }
+                    logger.info(() -> "deleted relations with ids '" + idList + '\'');
+                });
         }
+        return deleted;
+    }
 
-        JSONArray existingRelations = directusObject.getJSONArray("data");
 
-        for (Object object : existingRelations) {
-            if (!(object instanceof JSONObject)) {
-                throw (new IllegalStateException("'" + object + "' is not the expected JSONObject type "));
+    private static JSONArray readRelationManifest(File manifestFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(manifestFile.toPath())) {
+            Object manifest = new JSONTokener(reader).nextValue();
+            if (!(manifest instanceof JSONArray)) {
+                throw new IllegalStateException("relation manifest " + manifestFile.getAbsolutePath() +
+                    " must be a json array of relations");
             }
-            long id = ((JSONObject) object).getLong("id");
+            return (JSONArray) manifest;
+        }
+    }
 
-            // deleting hangs for the time we set as timeout
-            // https://bugs.openjdk.java.net/browse/JDK-8211437
-            //
-            logger.info("deleting relation '${id}'");
 
-            HttpRequest request = httpRequestBuilder("/relations/" + id).DELETE().build();
-            HttpResponse<String> response = sendHttpRequest(request);
-            if (response == null || response.statusCode() != 204) {
-                throw new IllegalStateException("deleting relation id = '" + id + "' failed. Response: '" + response +
-                    '/' + (String) response.body() + '\'');
+    /**
+     * checks the relations of a manifest and copies the attributes of a M2O relation out of them
+     */
+    private static List<JSONObject> toM2ORelations(JSONArray relations) {
+        List<JSONObject> result = new ArrayList<>(relations.length());
+        for (int i = 0; i < relations.length(); i++) {
+            JSONObject relation = relations.optJSONObject(i);
+            if (relation == null || !relation.has("collection_many") || !relation.has("field_many") ||
+                !relation.has("collection_one")) {
+                throw new IllegalStateException("relation " + i + " '" + relations.opt(i) + "' needs at least " +
+                    "collection_many, field_many and collection_one");
             }
+            result.add(new JSONObject(relation.toString()));
+        }
+        return result;
+    }
+
+
+    private static int batchCount(int count, int batchSize) {
+        return (count + batchSize - 1) / batchSize;
+    }
 
-            logger.info("deleted relation with id '" + id + '\'');
+
+    /**
+     * looks up the relations {@link #deleteM2ORelation(String, Object, String, String)} would query for in the
+     * schema cache
+     * 
+     * @return the matching relations in the shape of the api response or null if there is no cache or no match
+     */
+    private JSONObject findCachedM2ORelations(String manyCollection, Object manyField, String oneCollection,
+        String fieldOne) throws IOException, InterruptedException {
+        if (schemaCache == null) {
+            return null;
+        }
+        JSONArray matches = new JSONArray();
+        for (JSONObject relation : schemaCache.getRelations()) {
+            if (isM2ORelation(relation, manyCollection, manyField, oneCollection, fieldOne)) {
+                matches.put(relation);
+            }
         }
+        return matches.isEmpty() ? null : new JSONObject().put("data", matches);
+    }
+
+
+    /**
+     * @return true if the relation is the M2O relation with the passed collection and field names, the filters of
+     *         {@link #deleteM2ORelation(String, Object, String, String)}
+     */
+    private static boolean isM2ORelation(JSONObject relation, String manyCollection, Object manyField,
+        String oneCollection, String fieldOne) {
+        return manyCollection.equals(relation.optString("collection_many")) &&
+            String.valueOf(manyField).equals(relation.optString("field_many")) &&
+            oneCollection.equals(relation.optString("collection_one")) &&
+            (fieldOne == null ? relation.isNull("field_one")
+                            : fieldOne.equals(relation.optString("field_one")) && relation.isNull("junction_field"));
     }
 
 
+    /**
+     * like {@link #verifyCopy(String, String, String, int)} with the copy parallelism
+     */
+    public JSONObject verifyCopy(String collection, String oldFieldName, String newFieldName)
+                    throws IOException, InterruptedException {
+        return verifyCopy(collection, oldFieldName, newFieldName, copyParallelism);
+    }
+
+
+    /**
+     * checks that every value of {@code oldFieldName} was copied into {@code newFieldName}, e.g. by
+     * {@link #copyDataFromFieldToField(String, String, String)}. Rows without a value in the old field are not
+     * compared. Both fields are read concurrently in ranges of ids and compared by digests, only ranges that differ
+     * are compared row by row.
+     *
+     * @return a report with {@code rows}, the number of compared rows, {@code mismatching_rows} and up to
+     *         {@value FieldCopyVerifier#MAX_REPORTED_IDS} {@code mismatching_ids}
+     * @throws IllegalStateException if the number of compared rows differs from the number of items the server
+     *             counts with a value in the old field
+     */
+    public JSONObject verifyCopy(String collection, String oldFieldName, String newFieldName, int parallelism)
+                    throws IOException, InterruptedException {
+        return new FieldCopyVerifier(this, collection, oldFieldName, newFieldName, parallelism, pageSize).verify();
+    }
+
+
+    /**
+     * renames a field by creating a new field with the same definition, copying the data over and dropping the
+     * old field.
+     * 
+     * The progress is written to a journal in the journal directory. If a previous rename of the same field was
+     * interrupted, e.g. both fields exist, this picks up where it stopped: rows up to the journal's mark are not
+     * read again and rows whose new value already matches the old value are not written again. An existing new
+     * field is only written to if the journal records that a rename created it or if it has the same definition as
+     * the old field, otherwise this fails with an {@link IllegalStateException} like creating the field would.
+     * 
+     * Before the old field is dropped the copy is verified, if values differ the old field is kept, the journal is
+     * reset to the created field and an {@link IllegalStateException} is thrown. Renaming again copies the
+     * differing rows.
+     * 
+     * @see #setVerifyCopies(boolean)
+     * @see #setJournalDirectory(File)
+     */
     public void renameField(String collectionName, String oldFieldName, String newFieldName)
                     throws IOException, InterruptedException {
         Objects.requireNonNull(collectionName, "collection");
@@ -422,27 +1948,593 @@ public class DirectusAdministrationSdk {
         logger.info("renaming field '" + oldFieldName + "' in collection '" + collectionName + "' to name '" +
             newFieldName + '\'');
 
+        RenameJournal journal = RenameJournal.open(journalDirectory, apiBaseUrl, projectName, collectionName,
+            oldFieldName, newFieldName);
+        if (plan != null) {
+            planRenameField(collectionName, oldFieldName, newFieldName, journal);
+            return;
+        }
+        JSONObject newFieldDef = findFieldDefinition(collectionName, newFieldName);
+        boolean newFieldExists = newFieldDef != null;
+        JSONObject fieldDef = findFieldDefinition(collectionName, oldFieldName);
+
+        if (fieldDef == null && newFieldExists) {
+            // only the drop of the old field was left, or this was renamed before
+            logger.info("field '" + oldFieldName + "' doesn't exist anymore but '" + newFieldName +
+                "' does, nothing left to do");
+            journal.delete();
+            return;
+        }
+        if (fieldDef == null) {
+            // fail like before
+            getFieldDefinition(collectionName, oldFieldName);
+        }
+
+        if (!newFieldExists) {
+            if (journal.exists()) {
+                logger.warning("ignoring journal " + journal.getFile() + ", field '" + newFieldName +
+                    "' doesn't exist");
+                journal.delete();
+                journal = RenameJournal.open(journalDirectory, apiBaseUrl, projectName, collectionName,
+                    oldFieldName, newFieldName);
+            }
+            logger.info("creating '" + newFieldName + "' in collection '" + collectionName + '\'');
+            createFieldDefFromOtherField(collectionName, newFieldName, fieldDef);
+            journal.fieldCreated();
+            logger.info("moving data from '" + oldFieldName + "' to '" + newFieldName + '\'');
+            copyDataFromFieldToField(collectionName, oldFieldName, newFieldName, copyBatchSize, copyParallelism,
+                journal);
+            journal.copyComplete();
+        } else if (!journal.isCopyComplete()) {
+            if (!journal.isFieldCreated() && !isSameFieldDefinition(fieldDef, newFieldDef)) {
+                throw new IllegalStateException("field '" + newFieldName + "' exists already in collection '" +
+                    collectionName + "' and differs from '" + oldFieldName + "', it wasn't created by a rename " +
+                    "according to " + journal.getFile() + ". Drop it or rename to another name.");
+            }
+            logger.info("field '" + newFieldName + "' exists already, resuming the copy" +
+                (journal.getCopiedUntil() == null ? " comparing all rows"
+                                : " after id " + journal.getCopiedUntil() + " according to " + journal.getFile()));
+            if (!journal.exists()) {
+                journal.fieldCreated();
+            }
+            copyDataFromFieldToField(collectionName, oldFieldName, newFieldName, copyBatchSize, copyParallelism,
+                journal);
+            journal.copyComplete();
+        } else {
+            logger.info("data was already copied according to " + journal.getFile());
+        }
 
-        JSONObject fieldDef = getFieldDefinition(collectionName, oldFieldName);
-        logger.info("creating '" + newFieldName + "' in collection '" + collectionName + '\'');
-        createFieldDefFromOtherField(collectionName, newFieldName, fieldDef);
-        logger.info("moving data from '" + oldFieldName + "' to '" + newFieldName + '\'');
-        copyDataFromFieldToField(collectionName, oldFieldName, newFieldName);
+        if (verifyCopies) {
+            JSONObject report = verifyCopy(collectionName, oldFieldName, newFieldName);
+            if (report.getLong("mismatching_rows") > 0) {
+                // the next run compares all rows and copies the differing ones into the field created here
+                journal.delete();
+                RenameJournal.open(journalDirectory, apiBaseUrl, projectName, collectionName, oldFieldName,
+                    newFieldName).fieldCreated();
+                throw new IllegalStateException(report.getLong("mismatching_rows") + " of " + report.getLong("rows") +
+                    " rows of '" + newFieldName + "' in collection '" + collectionName + "' differ from '" +
+                    oldFieldName + "' after the copy, e.g. the ids " + report.getJSONArray("mismatching_ids") +
+                    ", the field '" + oldFieldName + "' was not dropped");
+            }
+            logger.info("verified " + report.getLong("rows") + " copied rows in " + report.getLong("ms") + " ms");
+        }
         dropField(collectionName, oldFieldName);
+        journal.delete();
         logger.info("rename complete");
     }
 
 
+    /**
+     * records the steps {@link #renameField(String, String, String)} would take, leaving the journal alone
+     */
+    private void planRenameField(String collectionName, String oldFieldName, String newFieldName,
+        RenameJournal journal) throws IOException, InterruptedException {
+        JSONObject newFieldDef = findFieldDefinition(collectionName, newFieldName);
+        boolean newFieldExists = newFieldDef != null;
+        JSONObject fieldDef = findFieldDefinition(collectionName, oldFieldName);
+        if (fieldDef == null && newFieldExists) {
+            logger.info("field '" + oldFieldName + "' doesn't exist anymore but '" + newFieldName +
+                "' does, nothing left to do");
+            return;
+        }
+        if (fieldDef == null) {
+            plan.add("POST", "/fields/" + collectionName, "create field '" + newFieldName + "' like '" +
+                oldFieldName + '\'', null, null, null, "field '" + oldFieldName + "' doesn't exist in collection '" +
+                    collectionName + '\'');
+            return;
+        }
+        if (newFieldExists && !journal.isCopyComplete() && !journal.isFieldCreated() &&
+            !isSameFieldDefinition(fieldDef, newFieldDef)) {
+            plan.add("POST", "/fields/" + collectionName, "create field '" + newFieldName + "' like '" +
+                oldFieldName + '\'', null, null, null, "field '" + newFieldName + "' exists already in collection '" +
+                    collectionName + "' and differs from '" + oldFieldName + '\'');
+            return;
+        }
+        if (!newFieldExists) {
+            plan.add("POST", "/fields/" + collectionName, "create field '" + newFieldName + "' like '" +
+                oldFieldName + '\'');
+            schemaCache.putField(collectionName, new JSONObject(fieldDef.toString())
+                .put("collection", collectionName)
+                .put("field", newFieldName)
+                .put("id", plannedId.decrementAndGet()));
+            // a journal without the new field is ignored by the real run
+            journal = null;
+        }
+        if (journal == null || !journal.isCopyComplete()) {
+            planCopy(collectionName, oldFieldName, newFieldName, copyBatchSize, journal);
+        }
+        dropField(collectionName, oldFieldName);
+    }
+
+
+    /**
+     * @return the field definition like {@link #getFieldDefinition(String, String)} or null if the field does
+     *         not exist
+     */
+    private JSONObject findFieldDefinition(String collectionName, String fieldName)
+                    throws IOException, InterruptedException {
+        JSONObject cachedField = schemaCache == null ? null : schemaCache.getField(collectionName, fieldName);
+        if (cachedField != null) {
+            return toFieldDefinition(collectionName, fieldName, new JSONObject().put("data", cachedField));
+        }
+        if (plan != null) {
+            return null;
+        }
+        HttpResponse<String> response =
+            sendHttpRequest(httpRequestBuilder("/fields/" + collectionName + '/' + fieldName).GET().build());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() > 400) {
+            throw (new IllegalStateException("Error thrown when executing request '" + response.request().uri() +
+                "' response: '" + response + '/' + response.body() + '\''));
+        }
+        JSONObject directusObject = parseResponse(response);
+        cacheField(collectionName, directusObject);
+        return toFieldDefinition(collectionName, fieldName, directusObject);
+    }
+
+
+    /**
+     * @return whether a field with the other definition could have been created by
+     *         {@link #createFieldDefFromOtherField(String, String, JSONObject)} from the first, i.e. whether both
+     *         are the same apart from their name and position
+     */
+    private static boolean isSameFieldDefinition(JSONObject fieldDef, JSONObject otherFieldDef) {
+        JSONObject comparable = new JSONObject(fieldDef.toString());
+        JSONObject otherComparable = new JSONObject(otherFieldDef.toString());
+        for (JSONObject definition : List.of(comparable, otherComparable)) {
+            removeProblematicFieldDefinitionDefaults(definition);
+            definition.remove("field");
+            definition.remove("sort");
+        }
+        return comparable.similar(otherComparable);
+    }
+
+
+    static boolean isSameValue(Object value, Object otherValue) {
+        if (value instanceof JSONObject && otherValue instanceof JSONObject) {
+            return ((JSONObject) value).similar(otherValue);
+        }
+        if (value instanceof JSONArray && otherValue instanceof JSONArray) {
+            return ((JSONArray) value).similar(otherValue);
+        }
+        return value.equals(otherValue);
+    }
+
+
     private Builder httpRequestBuilder(String context) {
-        return HttpRequest.newBuilder().timeout(Duration.ofSeconds(60L))
+        Builder builder = HttpRequest.newBuilder().timeout(requestTimeout)
             .header("Content-Type", "application/json")
             .header("Authorization", "Bearer " + token)
             .uri(URI.create(apiBaseUrl + "/" + projectName + context));
+        if (responseCompression) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+        if (!apiBaseUrl.regionMatches(true, 0, "https:", 0, 6)) {
+            // HTTP/2 is negotiated via ALPN on TLS, on plain http the client would send an h2c upgrade
+            // with every request which servers like the PHP ones behind directus simply ignore
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+        return builder;
     }
 
 
+    /**
+     * sends the request, retrying it according to the retry policy and waiting for the rate limit before every
+     * attempt
+     *
+     * @return the response of the last attempt
+     */
     private HttpResponse<String> sendHttpRequest(HttpRequest request) throws IOException, InterruptedException {
-        return HttpClient.newHttpClient().send(request, BodyHandlers.ofString());
+        return sendHttpRequest(request, BodyHandlers.ofString());
+    }
+
+
+    /**
+     * like {@link #sendHttpRequest(HttpRequest)} with another body handler. The body of an attempt that is
+     * retried is closed if it is a stream.
+     */
+    private <T> HttpResponse<T> sendHttpRequest(HttpRequest request, BodyHandler<T> bodyHandler)
+                    throws IOException, InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("SDK has been closed, cannot execute request '" + request.uri() + '\'');
+        }
+        if (plan != null && !"GET".equals(request.method())) {
+            throw new IllegalStateException("dry run must not send " + request.method() + " '" + request.uri() + '\'');
+        }
+        String endpoint = endpointOf(request);
+        RetryPolicy retries = retryPolicy;
+        try {
+            HttpRequest compressedRequest = compressBody(request, endpoint);
+            HttpResponse<T> response = sendHttpRequest(compressedRequest, bodyHandler, endpoint, retries);
+            if (compressedRequest != request && response.statusCode() == 415) {
+                compressionRejected(response);
+                response = sendHttpRequest(request, bodyHandler, endpoint, retries);
+            }
+            return response;
+        } finally {
+            invalidateCachedResponses(request);
+        }
+    }
+
+
+    private <T> HttpResponse<T> sendHttpRequest(HttpRequest request, BodyHandler<T> bodyHandler, String endpoint,
+        RetryPolicy retries) throws IOException, InterruptedException {
+        for (int attempt = 1;; attempt++) {
+            long throttleNanos = reserveRateLimit(endpoint);
+            if (throttleNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(throttleNanos);
+            }
+            Duration delay;
+            try {
+                HttpResponse<T> response = sendHttpRequestOnce(request, bodyHandler, endpoint);
+                if (attempt >= retries.getMaxAttempts() ||
+                    !retries.isRetryable(request.method(), response.statusCode())) {
+                    return response;
+                }
+                if (response.body() instanceof Closeable) {
+                    ((Closeable) response.body()).close();
+                }
+                delay = retries.getDelay(attempt, RetryPolicy.getRetryAfter(response));
+                logRetry(request, attempt, "status " + response.statusCode(), delay);
+            } catch (IOException e) {
+                if (attempt >= retries.getMaxAttempts() || !retries.isRetryable(request.method(), e)) {
+                    throw e;
+                }
+                delay = retries.getDelay(attempt, null);
+                logRetry(request, attempt, e.toString(), delay);
+            }
+            metrics.requestRetried(endpoint);
+            Thread.sleep(delay.toMillis());
+        }
+    }
+
+
+    private <T> HttpResponse<T> sendHttpRequestOnce(HttpRequest request, BodyHandler<T> bodyHandler,
+        String endpoint) throws IOException, InterruptedException {
+        MeteredBodyHandler<T> meteredHandler = new MeteredBodyHandler<>(
+            new GzipBodyHandler<>(bodyHandler, metrics, endpoint), metrics, endpoint, bytesSent(request));
+        metrics.requestStarted(endpoint);
+        try {
+            return httpClient.send(request, meteredHandler);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            meteredHandler.failed(e);
+            throw e;
+        }
+    }
+
+
+    /**
+     * like {@link #sendHttpRequest(HttpRequest)} but waits for the rate limit and between retries without
+     * blocking a thread
+     */
+    private CompletableFuture<HttpResponse<String>> sendHttpRequestAsync(HttpRequest request) {
+        return sendHttpRequestAsync(request, BodyHandlers.ofString(), null);
+    }
+
+
+    /**
+     * @param call the future handed out by the public async method this request is part of, once it is done (e.g.
+     *            cancelled or timed out) no further attempts are sent. Null if the request is on its own.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendHttpRequestAsync(HttpRequest request,
+        BodyHandler<T> bodyHandler, CompletableFuture<?> call) {
+        if (closed) {
+            return CompletableFuture.failedFuture(
+                new IllegalStateException("SDK has been closed, cannot execute request '" + request.uri() + '\''));
+        }
+        if (plan != null && !"GET".equals(request.method())) {
+            return CompletableFuture.failedFuture(new IllegalStateException("dry run must not send " +
+                request.method() + " '" + request.uri() + '\''));
+        }
+        String endpoint = endpointOf(request);
+        RetryPolicy retries = retryPolicy;
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        CompletableFuture<?> stop = call == null ? result : call;
+        HttpRequest compressedRequest;
+        try {
+            compressedRequest = compressBody(request, endpoint);
+        } catch (IOException | InterruptedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (compressedRequest == request) {
+            sendAttemptAsync(request, bodyHandler, endpoint, retries, 1, result, stop);
+            return result;
+        }
+        CompletableFuture<HttpResponse<T>> compressedResult = new CompletableFuture<>();
+        sendAttemptAsync(compressedRequest, bodyHandler, endpoint, retries, 1, compressedResult, stop);
+        compressedResult.whenComplete((response, error) -> {
+            if (error == null && response.statusCode() == 415) {
+                try {
+                    compressionRejected(response);
+                } catch (IOException e) {
+                    logger.fine("closing the response to a compressed body failed: " + e);
+                }
+                sendAttemptAsync(request, bodyHandler, endpoint, retries, 1, result, stop);
+            } else if (error == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(unwrap(error));
+            }
+        });
+        return result;
+    }
+
+
+    private <T> void sendAttemptAsync(HttpRequest request, BodyHandler<T> bodyHandler, String endpoint,
+        RetryPolicy retries, int attempt, CompletableFuture<HttpResponse<T>> result, CompletableFuture<?> call) {
+        if (call.isDone()) {
+            invalidateCachedResponses(request);
+            result.cancel(false);
+            return;
+        }
+        long throttleNanos = reserveRateLimit(endpoint);
+        CompletableFuture<HttpResponse<T>> sent = throttleNanos == 0
+                        ? sendHttpRequestOnceAsync(request, bodyHandler, endpoint)
+                        : CompletableFuture.runAsync(() -> {
+                        }, CompletableFuture.delayedExecutor(throttleNanos, TimeUnit.NANOSECONDS))
+                            .thenCompose(v -> sendHttpRequestOnceAsync(request, bodyHandler, endpoint));
+        sent.whenComplete((response, error) -> {
+            Throwable cause = unwrap(error);
+            Duration delay = null;
+            if (attempt < retries.getMaxAttempts() && !call.isDone()) {
+                if (cause != null && retries.isRetryable(request.method(), cause)) {
+                    delay = retries.getDelay(attempt, null);
+                    logRetry(request, attempt, cause.toString(), delay);
+                } else if (cause == null && retries.isRetryable(request.method(), response.statusCode())) {
+                    delay = retries.getDelay(attempt, RetryPolicy.getRetryAfter(response));
+                    logRetry(request, attempt, "status " + response.statusCode(), delay);
+                }
+            }
+            if (delay == null) {
+                // before the result, so whatever runs next doesn't read outdated responses
+                invalidateCachedResponses(request);
+                if (cause == null) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(cause);
+                }
+                return;
+            }
+            metrics.requestRetried(endpoint);
+            CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> sendAttemptAsync(request, bodyHandler, endpoint, retries, attempt + 1, result, call));
+        });
+    }
+
+
+    private <T> CompletableFuture<HttpResponse<T>> sendHttpRequestOnceAsync(HttpRequest request,
+        BodyHandler<T> bodyHandler, String endpoint) {
+        MeteredBodyHandler<T> meteredHandler = new MeteredBodyHandler<>(
+            new GzipBodyHandler<>(bodyHandler, metrics, endpoint), metrics, endpoint, bytesSent(request));
+        metrics.requestStarted(endpoint);
+        return httpClient.sendAsync(request, meteredHandler).whenComplete((response, error) -> {
+            if (error != null) {
+                meteredHandler.failed(error);
+            }
+        });
+    }
+
+
+    /**
+     * runs the steps of a public async method. The returned future is the one handed to the caller: once it is
+     * done, e.g. cancelled or completed by {@link CompletableFuture#orTimeout(long, TimeUnit)}, the steps send no
+     * further requests or retries.
+     */
+    private static <T> CompletableFuture<T> asyncCall(Function<CompletableFuture<?>, CompletableFuture<T>> steps) {
+        CompletableFuture<T> call = new CompletableFuture<>();
+        CompletableFuture<T> result;
+        try {
+            result = steps.apply(call);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            if (error == null) {
+                call.complete(value);
+            } else {
+                call.completeExceptionally(unwrap(error));
+            }
+        });
+        return call;
+    }
+
+
+    /**
+     * runs a step of an async call that may block in the calling thread, e.g. a lookup in the schema cache that
+     * loads the snapshot on first use or the planning of a dry run
+     */
+    private static <T> CompletableFuture<T> callBlocking(BlockingStep<T> step) {
+        try {
+            return CompletableFuture.completedFuture(step.run());
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+
+    @FunctionalInterface
+    private interface BlockingStep<T> {
+
+        T run() throws IOException, InterruptedException;
+
+    }
+
+
+    /**
+     * waits for a future of the async api, failures are thrown as the blocking methods always threw them and an
+     * interrupt cancels the call
+     */
+    static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+
+    /**
+     * drops the cached responses a write may have changed, once it is done whether it failed or not
+     */
+    private void invalidateCachedResponses(HttpRequest request) {
+        ResponseCache cache = responseCache;
+        if (cache != null && !"GET".equals(request.method())) {
+            cache.invalidate(pathOf(request));
+        }
+    }
+
+
+    /**
+     * @return the request with its body compressed if it is at least as large as the compression threshold,
+     *         otherwise the request itself
+     */
+    private HttpRequest compressBody(HttpRequest request, String endpoint) throws IOException, InterruptedException {
+        long threshold = requestCompressionThreshold;
+        long size = bytesSent(request);
+        if (threshold == 0 || size < threshold || request.headers().firstValue("Content-Encoding").isPresent()) {
+            return request;
+        }
+        BodyPublisher compressed = GzipBodyPublisher.compress(request.bodyPublisher().get());
+        metrics.requestBodyCompressed(endpoint, size, compressed.contentLength());
+        // java 11 has no builder copying a request
+        Builder builder = HttpRequest.newBuilder(request.uri())
+            .method(request.method(), compressed)
+            .expectContinue(request.expectContinue());
+        request.timeout().ifPresent(builder::timeout);
+        request.version().ifPresent(builder::version);
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        return builder.header("Content-Encoding", "gzip").build();
+    }
+
+
+    /**
+     * switches request compression off after the server answered a compressed body with 415
+     */
+    private void compressionRejected(HttpResponse<?> response) throws IOException {
+        if (requestCompressionThreshold != 0) {
+            requestCompressionThreshold = 0;
+            logger.warning(response.request().method() + " '" + response.request().uri() + "' with a gzip " +
+                "compressed body was rejected with 415, sending all request bodies uncompressed");
+        }
+        if (response.body() instanceof Closeable) {
+            ((Closeable) response.body()).close();
+        }
+    }
+
+
+    /**
+     * takes a token of the rate limit
+     *
+     * @return nanoseconds to wait before sending
+     */
+    private long reserveRateLimit(String endpoint) {
+        RateLimiter limiter = rateLimiter;
+        long throttleNanos = limiter == null ? 0 : limiter.reserve();
+        if (throttleNanos > 0) {
+            metrics.requestThrottled(endpoint, throttleNanos);
+        }
+        return throttleNanos;
+    }
+
+
+    private void logRetry(HttpRequest request, int attempt, String failure, Duration delay) {
+        logger.warning(() -> request.method() + " '" + request.uri() + "' failed with " + failure + " (attempt " +
+            attempt + " of " + retryPolicy.getMaxAttempts() + "), retrying in " + delay.toMillis() + "ms");
+    }
+
+
+    /**
+     * @return method and path of the request without the project and with numeric ids replaced, e.g.
+     *         {@code PATCH /items/articles/{id}}
+     */
+    private String endpointOf(HttpRequest request) {
+        return request.method() + ' ' + ID_SEGMENT.matcher(pathOf(request)).replaceAll("/{id}");
+    }
+
+
+    /**
+     * @return the path of the request without the project
+     */
+    private String pathOf(HttpRequest request) {
+        String path = request.uri().getPath();
+        String projectPath = '/' + projectName;
+        return path.startsWith(projectPath) ? path.substring(projectPath.length()) : path;
+    }
+
+
+    private static long bytesSent(HttpRequest request) {
+        return request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).filter(l -> l > 0).orElse(0L);
+    }
+
+
+    /**
+     * parses a response body, the time it takes is reported to the metrics
+     */
+    private JSONObject parseResponse(HttpResponse<String> response) {
+        long start = System.nanoTime();
+        JSONObject json = new JSONObject(response.body());
+        metrics.responseParsed(endpointOf(response.request()), System.nanoTime() - start);
+        return json;
+    }
+
+
+    /**
+     * parses a response body while it is received, so only the parsed objects are held in memory and not the
+     * text of the whole page as well. The time it takes, including waiting for the body, is reported to the
+     * metrics.
+     */
+    private JSONObject parseResponse(HttpRequest request, InputStream body) {
+        long start = System.nanoTime();
+        Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+        JSONObject json = new JSONObject(new JSONTokener(reader));
+        metrics.responseParsed(endpointOf(request), System.nanoTime() - start);
+        return json;
     }
 
 
@@ -0,0 +1,115 @@
+package io.directus.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * a Directus project to run commands against: its name, api, project and token
+ *
+ * A list of them is read from a config file like
+ * <pre>
+ * {"environments": [
+ *   {"name": "staging", "api": "https://staging.example.com", "token_env": "STAGING_TOKEN"},
+ *   {"name": "production", "api": "https://example.com", "project": "_", "token_env": "PRODUCTION_TOKEN"}
+ * ]}
+ * </pre>
+ * {@code project} defaults to {@code _}. The token is read from the environment variable named by
+ * {@code token_env}, or given as {@code token} (which puts it into the file).
+ */
+public class DirectusEnvironment {
+
+    private final String name;
+    private final String apiBaseUrl;
+    private final String projectName;
+    private final String token;
+
+    public DirectusEnvironment(String name, String apiBaseUrl, String projectName, String token) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.apiBaseUrl = Objects.requireNonNull(apiBaseUrl, "apiBaseUrl");
+        this.projectName = Objects.requireNonNull(projectName, "projectName");
+        this.token = Objects.requireNonNull(token, "token");
+    }
+
+
+    /**
+     * reads the environments of a config file, in the order of the file
+     */
+    public static List<DirectusEnvironment> readAll(File configFile) throws IOException {
+        Objects.requireNonNull(configFile, "configFile");
+        JSONObject config = new JSONObject(Files.readString(configFile.toPath(), StandardCharsets.UTF_8));
+        JSONArray environmentList = config.optJSONArray("environments");
+        if (environmentList == null || environmentList.isEmpty()) {
+            throw new IllegalStateException("environment config " + configFile.getAbsolutePath() +
+                " needs a non empty \"environments\" array");
+        }
+        List<DirectusEnvironment> environments = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < environmentList.length(); i++) {
+            JSONObject environment = environmentList.getJSONObject(i);
+            String name = environment.optString("name", null);
+            String api = environment.optString("api", null);
+            if (name == null || api == null) {
+                throw new IllegalStateException("environment " + i + " of " + configFile.getAbsolutePath() +
+                    " needs a name and an api");
+            }
+            if (!names.add(name)) {
+                throw new IllegalStateException("environment '" + name + "' is defined twice in " +
+                    configFile.getAbsolutePath());
+            }
+            String token = environment.optString("token", null);
+            if (token == null && environment.has("token_env")) {
+                token = System.getenv(environment.getString("token_env"));
+                if (token == null) {
+                    throw new IllegalStateException("environment variable " + environment.getString("token_env") +
+                        " with the token of environment '" + name + "' is not set");
+                }
+            }
+            if (token == null) {
+                throw new IllegalStateException("environment '" + name + "' needs a token_env or a token");
+            }
+            environments.add(new DirectusEnvironment(name, api, environment.optString("project", "_"), token));
+        }
+        return environments;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public String getApiBaseUrl() {
+        return apiBaseUrl;
+    }
+
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+
+    /**
+     * @return a new SDK for this environment, to be closed by the caller
+     */
+    public DirectusAdministrationSdk createSdk() {
+        return new DirectusAdministrationSdk(apiBaseUrl, projectName, token);
+    }
+
+
+    @Override
+    public String toString() {
+        return name + " (" + apiBaseUrl + '/' + projectName + ')';
+    }
+
+}
@@ -0,0 +1,98 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * iterates over all items of a collection page by page
+ *
+ * Pages are read with keyset pagination on the id ({@code sort=id&filter[id][gt]=lastId}) instead of
+ * offsets, so rows are neither skipped nor read twice and the server does not have to count past the offset.
+ * Only the current page is kept in memory. The next page is requested when the current one is used up, the
+ * items end with the first empty page.
+ */
+class DirectusItemIterator implements Iterator<JSONObject> {
+
+    private final DirectusAdministrationSdk sdk;
+    private final String collection;
+    private final String fields;
+    private final int pageSize;
+
+    private JSONArray page = new JSONArray();
+    private int pageIndex;
+    private Long lastId;
+    private boolean lastPage;
+
+    /**
+     * @param fields comma separated list of fields to read, the id is always added; null reads all fields
+     * @param afterId only items with an id greater than this are returned, null to start at the beginning
+     */
+    DirectusItemIterator(DirectusAdministrationSdk sdk, String collection, String fields, Long afterId,
+        int pageSize) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        this.collection = Objects.requireNonNull(collection, "collection");
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1 but was " + pageSize);
+        }
+        this.fields = fields == null ? "*" : "id," + fields;
+        this.lastId = afterId;
+        this.pageSize = pageSize;
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if (pageIndex < page.length()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+        try {
+            readNextPage();
+        } catch (IOException e) {
+            throw new UncheckedIOException("reading items of collection '" + collection + "' failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while reading items of collection '" + collection + '\'',
+                e);
+        }
+        return pageIndex < page.length();
+    }
+
+
+    @Override
+    public JSONObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object object = page.get(pageIndex);
+        // release the reference to the item so the page shrinks as it is consumed
+        page.put(pageIndex++, JSONObject.NULL);
+        if (!(object instanceof JSONObject)) {
+            throw (new IllegalStateException("'" + object + "' is not the expected JSONObject type "));
+        }
+        JSONObject item = (JSONObject) object;
+        lastId = item.getLong("id");
+        return item;
+    }
+
+
+    private void readNextPage() throws IOException, InterruptedException {
+        String urlContext = "/items/" + collection + "?fields=" + fields + "&sort=id&limit=" + pageSize +
+            (lastId == null ? "" : "&filter[id][gt]=" + lastId);
+        JSONObject directusObject = sdk.getDirectusData(urlContext);
+        page = directusObject.has("data") ? directusObject.getJSONArray("data") : new JSONArray();
+        pageIndex = 0;
+        // a shorter page doesn't mean the end, the server may cap the limit below the page size
+        lastPage = page.isEmpty();
+    }
+
+}
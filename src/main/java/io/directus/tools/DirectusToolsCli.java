@@ -1,34 +1,92 @@
 package io.directus.tools;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
+
 
 /**
  * quick and dirty wrapper around the admin sdk
  */
 public class DirectusToolsCli {
 
-    private final Map<String, CliCommandMethodInfo> COMMAND_METHODS;
+    /**
+     * options without a value that every command accepts
+     */
+    private static final List<String> GLOBAL_FLAGS = List.of("--dry-run", "--stats");
+
+    /**
+     * options with a value that every command accepts
+     */
+    private static final List<String> GLOBAL_OPTIONS = List.of("--max-attempts", "--rate-limit", "--environments",
+        "--on-failure");
+
+    /**
+     * the commands by name, looked up once per process so repl and serve don't scan for them on every command
+     */
+    private static final Map<String, CliCommandMethodInfo> COMMAND_METHODS = Collections.unmodifiableMap(Arrays
+        .stream(DirectusToolsCli.class.getDeclaredMethods())
+        .filter(m -> (m.getAnnotation(CliCommandInfo.class) != null))
+        .map(m -> new CliCommandMethodInfo(m.getAnnotation(CliCommandInfo.class), m))
+        .collect(
+            Collectors.toMap(c -> c.name, c -> c, (a, b) -> a, TreeMap::new)));
+
+    // commands run by repl or serve, makes the names of their metrics mbeans unique
+    private static final AtomicLong COMMAND_COUNT = new AtomicLong();
+
     private DirectusAdministrationSdk sdk;
+    private final Map<String, String> options;
+    // where commands print their results, one stream per environment when running against several
+    private final PrintStream out;
+    private final PrintStream err;
+    // the client of repl or serve shared by all commands, null when running a single command
+    private final HttpClient sharedHttpClient;
+    // the environment of the --environments file this instance runs the command for, null otherwise
+    private final String environmentName;
 
     private DirectusToolsCli() {
-        COMMAND_METHODS = Arrays
-            .stream(DirectusToolsCli.class.getDeclaredMethods())
-            .filter(m -> (m.getAnnotation(CliCommandInfo.class) != null))
-            .map(m -> new CliCommandMethodInfo(m.getAnnotation(CliCommandInfo.class), m))
-            .collect(
-                Collectors.toMap(c -> c.name, c -> c));
+        this(new HashMap<>(), System.out, System.err, null);
+    }
+
+
+    private DirectusToolsCli(Map<String, String> options, PrintStream out, PrintStream err,
+        HttpClient sharedHttpClient) {
+        this(options, out, err, sharedHttpClient, null);
+    }
+
+
+    private DirectusToolsCli(Map<String, String> options, PrintStream out, PrintStream err,
+        HttpClient sharedHttpClient, String environmentName) {
+        this.options = options;
+        this.out = out;
+        this.err = err;
+        this.sharedHttpClient = sharedHttpClient;
+        this.environmentName = environmentName;
     }
 
 
@@ -37,24 +95,53 @@ public class DirectusToolsCli {
      * commands, more complex libs might work but would blow up jar
      */
     private void print_help_and_exit() {
-        System.out.println("A bunch of simple directus admin cli commands");
-        System.out.println("requires DIRECTUS_API_HOST and DIRECTUS_ADMIN_TOKEN environment variables to be set");
-        System.out.println();
+        out.println("A bunch of simple directus admin cli commands");
+        out.println("requires DIRECTUS_API_HOST and DIRECTUS_ADMIN_TOKEN environment variables to be set");
+        out.println("optionally set DIRECTUS_SCHEMA_CACHE_TTL (seconds) to reuse a schema snapshot across calls,");
+        out.println("  it is kept in DIRECTUS_SCHEMA_CACHE_DIR (default: working directory)");
+        out.println("optionally set DIRECTUS_RESPONSE_CACHE_TTL (seconds) to cache api reads, revalidated with ETag or");
+        out.println("  Last-Modified where the server sends them and used for the ttl otherwise, across calls if");
+        out.println("  DIRECTUS_RESPONSE_CACHE_DIR is set");
+        out.println("optionally set DIRECTUS_REQUEST_COMPRESSION_THRESHOLD (bytes) to send larger request bodies gzip");
+        out.println("  compressed, responses are always requested with gzip");
+        out.println("optionally set DIRECTUS_JDBC_URL (and DIRECTUS_JDBC_USER, DIRECTUS_JDBC_PASSWORD) to copy, import and delete");
+        out.println("  items with sql on the project's database instead of the api, the jdbc driver has to be on the class path");
+        out.println();
+        out.println("all commands accept");
+        out.println("  --dry-run: send no changes to the server, print the api calls the command would make instead,");
+        out.println("    with estimated row counts for steps that move data. Exits with -7 if a step would fail");
+        out.println("  --stats: print request counts, latencies and bytes per endpoint when done, the same numbers");
+        out.println("    are available via JMX (io.directus.tools:type=RequestMetrics) while the command runs");
+        out.println("  --max-attempts N: how often a request failing with 429, 5xx or an io error is sent (default " +
+            RetryPolicy.DEFAULT_MAX_ATTEMPTS + "), POSTs are only retried on 429 and if the connection failed");
+        out.println("  --rate-limit N: send at most N requests per second");
+        out.println("  --environments file: run the command against all environments of the json file concurrently");
+        out.println("    instead of DIRECTUS_API_HOST, e.g. {\"environments\": [{\"name\": \"staging\", \"api\": \"https://...\",");
+        out.println("    \"project\": \"_\", \"token_env\": \"STAGING_TOKEN\"}]}. The output is printed per environment,");
+        out.println("    followed by a summary. Exits with -8 if the command failed for an environment. Files a command");
+        out.println("    writes get the environment name, e.g. changelog.json.staging.applied, export/staging");
+        out.println("  --on-failure continue|fail-fast: whether the other environments go on when one fails (default continue)");
+        out.println();
+        out.println("to avoid starting a jvm per command, start repl or serve and send commands with");
+        out.println("  java -cp directus-tools.jar io.directus.tools.DirectusToolsClient {command} {arguments}");
+        out.println();
 
         COMMAND_METHODS.values().forEach(c -> {
             for (String desriptionLine : c.descriptionLines) {
-                System.out.println(desriptionLine);
+                out.println(desriptionLine);
             }
-            System.out.println();
+            out.println();
         });
 
-        System.out.println();
-        System.exit(-1);
+        out.println();
+        throw exit(-1);
     }
 
 
     /**
      * checks if essential environment variables are set
+     *
+     * @throws CommandExit with status -2 if not
      */
     public static void checkEnvironmentVars() throws Exception {
         String apiBaseUrl = System.getenv("DIRECTUS_API_HOST");
@@ -67,7 +154,7 @@ public class DirectusToolsCli {
             if (token == null) {
                 System.out.println("environment variable DIRECTUS_API_HOST must be set");
             }
-            System.exit(-2);
+            throw exit(-2);
         }
     }
 
@@ -77,7 +164,7 @@ public class DirectusToolsCli {
             "api_info ",
             "  calls the  root path of the API to display version, name, etc."})
     private void apiInfo(List<String> arguments) throws Exception {
-        System.out.println(sdk.getDirectusData("/").toString(2));
+        out.println(sdk.getDirectusData("/").toString(2));
     }
 
 
@@ -94,15 +181,22 @@ public class DirectusToolsCli {
 
     @CliCommandInfo(name = "patch",
         argCount = 1,
+        options = {"--report-dir"},
         descriptionLines = {
-            "patch {collection.schema.json.file}",
+            "patch {collection.schema.json.file} [--report-dir directory]",
             "   patch an existing collection based on {collection.schema.json.file}",
             "   NOTE: this does not delete removed fields, it only adds new fields or updates existing fields, use drop_field to remove fields",
             "   NOTE: the API might not change attributes. e.g. unique fields cannot be made un-unique",
-            "   NOTE: the old definitions is compared with the new definitons and if it changed, then it leaves the files for manual comparison"})
+            "   NOTE: the old definitions is compared with the new definitons and the changed paths are printed",
+            "   --report-dir directory: also write the changes as json into a file in this directory"})
     private void patch(List<String> arguments) throws IOException, InterruptedException {
         File collectionSchemaFile = getReadableFileOrFail(arguments.get(0));
-        sdk.patch(collectionSchemaFile);
+        if (options.containsKey("--report-dir")) {
+            sdk.setPatchReportDirectory(environmentDirectory(options.get("--report-dir")));
+        }
+        List<JsonDiff.Change> changes = sdk.patch(collectionSchemaFile);
+        out.println(changes.isEmpty() ? "No changes" : changes.size() + " changes:");
+        changes.forEach(out::println);
     }
 
     @CliCommandInfo(name = "create_m2o",
@@ -133,6 +227,39 @@ public class DirectusToolsCli {
     }
 
 
+    @CliCommandInfo(name = "create_m2o_bulk",
+        argCount = 1,
+        descriptionLines = {
+            "create_m2o_bulk {relations.json.file}",
+            "  create all M2O relations of {relations.json.file}, a json array of",
+            "  {\"collection_many\": ..., \"field_many\": ..., \"collection_one\": ..., \"field_one\": ...} objects",
+            "  NOTE: the relations are sent " + DirectusAdministrationSdk.RELATION_BATCH_SIZE + " per request"})
+    private void createM2OBulk(List<String> arguments) throws Exception {
+        File manifestFile = getReadableFileOrFail(arguments.get(0));
+        long start = System.nanoTime();
+        int count = sdk.createM2ORelations(manifestFile);
+        out.println("created " + count + " relations in " +
+            Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+
+    @CliCommandInfo(name = "delete_m2o_bulk",
+        argCount = 1,
+        descriptionLines = {
+            "delete_m2o_bulk {relations.json.file}",
+            "  delete all M2O relations matching one of the relations of {relations.json.file}, same format as for",
+            "  create_m2o_bulk, a missing field_one matches relations without field_one",
+            "  NOTE: the relations are looked up with one request and deleted " +
+                DirectusAdministrationSdk.RELATION_BATCH_SIZE + " per request"})
+    private void deleteM2OBulk(List<String> arguments) throws Exception {
+        File manifestFile = getReadableFileOrFail(arguments.get(0));
+        long start = System.nanoTime();
+        int count = sdk.deleteM2ORelations(manifestFile);
+        out.println("deleted " + count + " relations in " +
+            Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+
     @CliCommandInfo(name = "get_field_def",
         argCount = 2,
         descriptionLines = {
@@ -141,7 +268,7 @@ public class DirectusToolsCli {
     private void getFieldDefinition(List<String> arguments) throws Exception {
         String collectionName = arguments.get(0);
         String fieldName = arguments.get(1);
-        System.out.println(sdk.getFieldDefinition(collectionName, fieldName).toString(2));
+        out.println(sdk.getFieldDefinition(collectionName, fieldName).toString(2));
     }
 
 
@@ -159,18 +286,112 @@ public class DirectusToolsCli {
 
     @CliCommandInfo(name = "rename_field",
         argCount = 3,
+        options = {"--parallelism"},
         descriptionLines = {
-            "rename_field {collectionName} {currentfieldName} {newFieldName}",
+            "rename_field {collectionName} {currentfieldName} {newFieldName} [--parallelism N]",
             "  rename field {currentfieldName} in collection {collectionName} to {newFieldName}",
+            "  --parallelism N: number of update requests sent concurrently while copying the data (default " +
+                DirectusAdministrationSdk.DEFAULT_COPY_PARALLELISM + ")",
             "  NOTE: this is not working for relation fields. in the background this create a new field and copies the data over and deletes the old field"})
     private void renameField(List<String> arguments) throws Exception {
         String collectionName = arguments.get(0);
         String oldFieldName = arguments.get(1);
         String newFieldName = arguments.get(2);
+        sdk.setCopyParallelism(getIntOption("--parallelism", DirectusAdministrationSdk.DEFAULT_COPY_PARALLELISM));
         sdk.renameField(collectionName, oldFieldName, newFieldName);
     }
 
 
+    @CliCommandInfo(name = "verify_copy",
+        argCount = 3,
+        options = {"--parallelism"},
+        descriptionLines = {
+            "verify_copy {collectionName} {fieldName} {copiedFieldName} [--parallelism N]",
+            "  check that every value of {fieldName} in collection {collectionName} is also in {copiedFieldName}",
+            "  --parallelism N: number of id ranges read concurrently (default " +
+                DirectusAdministrationSdk.DEFAULT_COPY_PARALLELISM + ")",
+            "  NOTE: rename_field does this before it drops the old field. Exits with -10 if values differ"})
+    private void verifyCopy(List<String> arguments) throws Exception {
+        JSONObject report = sdk.verifyCopy(arguments.get(0), arguments.get(1), arguments.get(2),
+            getIntOption("--parallelism", DirectusAdministrationSdk.DEFAULT_COPY_PARALLELISM));
+        long mismatchingRows = report.getLong("mismatching_rows");
+        out.println((mismatchingRows == 0 ? "all " + report.getLong("rows") + " rows match"
+                        : mismatchingRows + " of " + report.getLong("rows") + " rows differ, e.g. the ids " +
+                            report.getJSONArray("mismatching_ids")) +
+            " in " + report.getLong("ms") + " ms");
+        if (mismatchingRows > 0) {
+            throw exit(-10);
+        }
+    }
+
+
+    @CliCommandInfo(name = "import_data",
+        argCount = 2,
+        options = {"--chunk-size", "--parallelism", "--checkpoint"},
+        descriptionLines = {
+            "import_data {collectionName} {data.json.file} [--chunk-size N] [--parallelism N] [--checkpoint file]",
+            "  insert the items of {data.json.file} (a json array or one json object per line) into {collectionName}",
+            "  the file is streamed and sent in chunks, so it can be larger than memory or the api's request size limit",
+            "  --chunk-size N: items per request (default " + DirectusAdministrationSdk.DEFAULT_IMPORT_CHUNK_SIZE + ")",
+            "  --parallelism N: number of chunks sent concurrently (default 1)",
+            "  --checkpoint file: where progress is recorded (default {data.json.file}.checkpoint)",
+            "  NOTE: if chunks fail, rerun the same command to send only the chunks missing according to the checkpoint"})
+    private void importData(List<String> arguments) throws Exception {
+        String collectionName = arguments.get(0);
+        File dataFile = getReadableFileOrFail(arguments.get(1));
+        int chunkSize = getIntOption("--chunk-size", DirectusAdministrationSdk.DEFAULT_IMPORT_CHUNK_SIZE);
+        int parallelism = getIntOption("--parallelism", 1);
+        File checkpointFile = options.containsKey("--checkpoint") ? environmentFile(options.get("--checkpoint"), "")
+                        : environmentFile(dataFile.getPath(), ".checkpoint");
+        long count = sdk.importData(collectionName, dataFile, chunkSize, parallelism, checkpointFile);
+        out.println("imported " + count + " items into " + collectionName);
+    }
+
+
+    @CliCommandInfo(name = "delete_items",
+        argCount = 2,
+        descriptionLines = {
+            "delete_items {collectionName} {ids.json.file}",
+            "  delete the items of {collectionName} whose ids are in {ids.json.file}, a json array of ids",
+            "  NOTE: the items are deleted " + DirectusAdministrationSdk.DELETE_BATCH_SIZE + " per request, with DIRECTUS_JDBC_URL " +
+                DirectusAdministrationSdk.DEFAULT_JDBC_BATCH_SIZE + " per sql statement"})
+    private void deleteItems(List<String> arguments) throws Exception {
+        String collectionName = arguments.get(0);
+        File idsFile = getReadableFileOrFail(arguments.get(1));
+        List<Long> ids = new ArrayList<>();
+        new JSONArray(Files.readString(idsFile.toPath(), StandardCharsets.UTF_8))
+            .forEach(id -> ids.add(((Number) id).longValue()));
+        long start = System.nanoTime();
+        long count = sdk.deleteItems(collectionName, ids);
+        out.println("deleted " + count + " items of " + collectionName + " in " +
+            Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+
+    @CliCommandInfo(name = "migrate",
+        argCount = 1,
+        options = {"--parallelism", "--applied-log"},
+        descriptionLines = {
+            "migrate {changelog.json.file} [--parallelism N] [--applied-log file]",
+            "  apply all changes of {changelog.json.file} that were not applied before, in one run",
+            "  changes are {\"id\": \"...\", \"command\": \"patch\", \"args\": [...], \"depends_on\": [...]} with the commands",
+            "  create_collection, patch, add_data, import_data, rename_field, drop_field, create_m2o, delete_m2o,",
+            "  create_m2o_bulk, delete_m2o_bulk",
+            "  and the same arguments as on the command line (add_data takes {collectionName} {data.json.file})",
+            "  --parallelism N: number of changes applied concurrently where depends_on allows it (default 1)",
+            "  --applied-log file: where applied changes and their checksums are recorded (default {changelog.json.file}.applied)",
+            "  NOTE: a change without depends_on depends on the change before it"})
+    private void migrate(List<String> arguments) throws Exception {
+        File changelogFile = getReadableFileOrFail(arguments.get(0));
+        File appliedLog = options.containsKey("--applied-log") ? environmentFile(options.get("--applied-log"), "")
+                        : environmentFile(changelogFile.getPath(), ".applied");
+        MigrationRunner runner = new MigrationRunner(sdk, getIntOption("--parallelism", 1));
+        runner.setEnvironmentName(environmentName);
+        List<String> applied = runner.run(changelogFile, appliedLog);
+        out.println((sdk.isDryRun() ? "would apply " : "applied ") + applied.size() + " changes: " + applied);
+    }
+
+
     @CliCommandInfo(name = "get_data",
         argCount = 1,
         descriptionLines = {
@@ -178,7 +399,227 @@ public class DirectusToolsCli {
             "  calls field {currentfieldName} in collection {urlContext}",
             "  NOTE: this is not working for relation fields. in the background this create a new field and copies the data over and deletes the old field"})
     private void getData(List<String> arguments) throws Exception {
-        System.out.println(sdk.getDirectusData(arguments.get(0)).toString(2));
+        out.println(sdk.getDirectusData(arguments.get(0)).toString(2));
+    }
+
+
+    @CliCommandInfo(name = "export_items",
+        argCount = 2,
+        descriptionLines = {
+            "export_items {collectionName} {target.ndjson.file}",
+            "  write all items of collection {collectionName} into {target.ndjson.file}, one json object per line",
+            "  NOTE: the collection is read page by page, so this also works for collections larger than the api's default limit"})
+    private void exportItems(List<String> arguments) throws Exception {
+        String collectionName = arguments.get(0);
+        File targetFile = environmentFile(arguments.get(1), "");
+        long count = sdk.exportItems(collectionName, targetFile);
+        out.println("exported " + count + " items to " + targetFile.getPath());
+    }
+
+    @CliCommandInfo(name = "export",
+        argCount = 1,
+        options = {"--collections", "--parallelism"},
+        descriptionLines = {
+            "export {target.directory} [--collections name,name] [--parallelism N]",
+            "  back up the schema and all items into {target.directory}: schema.json, one gzip'd ndjson file per",
+            "  collection and manifest.json with the item count and sha-256 of every file",
+            "  --collections name,name: only export these collections (default: all except the directus_ system collections)",
+            "  --parallelism N: number of collections exported concurrently (default " +
+                DirectusAdministrationSdk.DEFAULT_EXPORT_PARALLELISM + ")",
+            "  NOTE: an export without manifest.json is incomplete"})
+    private void export(List<String> arguments) throws Exception {
+        File targetDirectory = environmentDirectory(arguments.get(0));
+        String[] collections = options.containsKey("--collections") ? options.get("--collections").split(",")
+                        : new String[0];
+        long start = System.nanoTime();
+        JSONObject manifest = sdk.exportProject(targetDirectory,
+            getIntOption("--parallelism", DirectusAdministrationSdk.DEFAULT_EXPORT_PARALLELISM), collections);
+        long items = 0;
+        for (Object collection : manifest.getJSONArray("collections")) {
+            items += ((JSONObject) collection).getLong("items");
+        }
+        out.println("exported " + items + " items of " + manifest.getJSONArray("collections").length() +
+            " collections to " + targetDirectory.getPath() + " in " +
+            Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+    @CliCommandInfo(name = "restore",
+        argCount = 1,
+        options = {"--chunk-size", "--parallelism"},
+        descriptionLines = {
+            "restore {export.directory} [--chunk-size N] [--parallelism N]",
+            "  load an export into a project without the exported collections: creates the collections, fields and",
+            "  relations, then imports the items and checks the item counts against the manifest",
+            "  --chunk-size N: items per request (default " + DirectusAdministrationSdk.DEFAULT_IMPORT_CHUNK_SIZE + ")",
+            "  --parallelism N: number of collections imported concurrently (default " +
+                DirectusAdministrationSdk.DEFAULT_EXPORT_PARALLELISM + ")",
+            "  NOTE: if it fails, rerun the same command to continue, progress is kept in {export.directory}"})
+    private void restore(List<String> arguments) throws Exception {
+        File exportDirectory = new File(arguments.get(0));
+        long start = System.nanoTime();
+        long count = sdk.restoreProject(exportDirectory,
+            getIntOption("--chunk-size", DirectusAdministrationSdk.DEFAULT_IMPORT_CHUNK_SIZE),
+            getIntOption("--parallelism", DirectusAdministrationSdk.DEFAULT_EXPORT_PARALLELISM));
+        out.println("restored " + exportDirectory.getPath() + ", imported " + count + " items in " +
+            Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+    @CliCommandInfo(name = "diff_env",
+        argCount = 2,
+        options = {"--report"},
+        perEnvironment = false,
+        descriptionLines = {
+            "diff_env {environment} {otherEnvironment} --environments file [--report file]",
+            "  compare the collections, fields and relations of two environments of the --environments file and print",
+            "  the differences from {environment} to {otherEnvironment}, e.g. ~ /fields/articles/title/length: 100 -> 255",
+            "  fields are compared like get_field_def shows them, relations by their many collection and field",
+            "  --report file: also write the differences as json into this file",
+            "  NOTE: the schemas are read with three requests per environment, all at the same time. Exits with -9 if",
+            "  the schemas differ"})
+    private void diffEnvironments(List<String> arguments) throws Exception {
+        if (!options.containsKey("--environments")) {
+            err.println("diff_env requires the option '--environments'.");
+            throw exit(-3);
+        }
+        Map<String, DirectusEnvironment> environments = new HashMap<>();
+        DirectusEnvironment.readAll(getReadableFileOrFail(options.get("--environments")))
+            .forEach(e -> environments.put(e.getName(), e));
+        for (String name : arguments) {
+            if (!environments.containsKey(name)) {
+                err.println("Environment '" + name + "' is not defined in " + options.get("--environments") +
+                    ", it has " + environments.keySet() + '.');
+                throw exit(-3);
+            }
+        }
+
+        long start = System.nanoTime();
+        List<JsonDiff.Change> changes;
+        try (DirectusAdministrationSdk before = environments.get(arguments.get(0)).createSdk();
+            DirectusAdministrationSdk after = environments.get(arguments.get(1)).createSdk()) {
+            configureSdk(before);
+            configureSdk(after);
+            changes = DirectusAdministrationSdk.diffSchemas(before, after);
+        }
+        changes.forEach(out::println);
+        out.println((changes.isEmpty() ? "No differences" : changes.size() + " differences") + " between " +
+            arguments.get(0) + " and " + arguments.get(1) + " in " +
+            Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+        if (options.containsKey("--report")) {
+            Files.writeString(Path.of(options.get("--report")), new JSONObject()
+                .put("before", arguments.get(0))
+                .put("after", arguments.get(1))
+                .put("changes", JsonDiff.toJson(changes))
+                .toString(2), StandardCharsets.UTF_8);
+        }
+        if (!changes.isEmpty()) {
+            throw exit(-9);
+        }
+    }
+
+    @CliCommandInfo(name = "repl",
+        argCount = 0,
+        perEnvironment = false,
+        descriptionLines = {
+            "repl",
+            "  read commands from stdin, one per line with the same arguments as on the command line (quote arguments",
+            "  with spaces), and run them in this jvm with one connection pool until exit or the end of the input",
+            "  NOTE: the exit status of a failed command is printed instead of ending the repl"})
+    private void repl(List<String> arguments) throws Exception {
+        HttpClient httpClient = startDaemon();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        boolean interactive = System.console() != null;
+        while (true) {
+            if (interactive) {
+                out.print("directus> ");
+                out.flush();
+            }
+            String line = reader.readLine();
+            if (line == null || List.of("exit", "quit").contains(line.trim())) {
+                return;
+            }
+            List<String> commandLine = splitCommandLine(line);
+            if (!commandLine.isEmpty()) {
+                int status = execute(commandLine, out, httpClient);
+                if (status != 0) {
+                    out.println("exit " + status);
+                }
+            }
+        }
+    }
+
+
+    @CliCommandInfo(name = "serve",
+        argCount = 0,
+        options = {"--port", "--port-file"},
+        perEnvironment = false,
+        descriptionLines = {
+            "serve [--port N] [--port-file file]",
+            "  run the commands sent with DirectusToolsClient in this jvm with one connection pool, until stop is sent",
+            "  --port N: loopback port to listen on (default: any free port)",
+            "  --port-file file: where the port and the secret clients have to send are written (default " +
+                CliServer.DEFAULT_PORT_FILE + ")",
+            "  NOTE: relative paths in commands are resolved against the working directory of serve"})
+    private void serve(List<String> arguments) throws Exception {
+        HttpClient httpClient = startDaemon();
+        try (CliServer server = new CliServer(getIntOption("--port", 0),
+            Path.of(options.getOrDefault("--port-file", CliServer.DEFAULT_PORT_FILE)), httpClient)) {
+            out.println("serving commands on port " + server.getPort());
+            server.serve();
+        }
+    }
+
+
+    /**
+     * @return the client shared by the commands of repl or serve, after checking the api can be reached with it
+     */
+    private HttpClient startDaemon() throws Exception {
+        if (sharedHttpClient != null) {
+            err.println("repl and serve can't be run by repl or serve.");
+            throw exit(-3);
+        }
+        checkEnvironmentVars();
+        HttpClient httpClient = DirectusAdministrationSdk.newHttpClient(DirectusAdministrationSdk.DEFAULT_CONNECT_TIMEOUT,
+            null);
+        try (DirectusAdministrationSdk probeSdk = new DirectusAdministrationSdk(System.getenv("DIRECTUS_API_HOST"), "_",
+            System.getenv("DIRECTUS_ADMIN_TOKEN"), httpClient, DirectusAdministrationSdk.DEFAULT_REQUEST_TIMEOUT)) {
+            configureSdk(probeSdk);
+            probeSdk.getDirectusData("/");
+        }
+        return httpClient;
+    }
+
+
+    /**
+     * splits a line of the repl into arguments at whitespace, except inside single or double quotes
+     */
+    static List<String> splitCommandLine(String line) {
+        List<String> arguments = new ArrayList<>();
+        StringBuilder argument = null;
+        char quote = 0;
+        for (char c : line.toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    argument.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                argument = argument == null ? new StringBuilder() : argument;
+            } else if (Character.isWhitespace(c)) {
+                if (argument != null) {
+                    arguments.add(argument.toString());
+                    argument = null;
+                }
+            } else {
+                argument = argument == null ? new StringBuilder() : argument;
+                argument.append(c);
+            }
+        }
+        if (argument != null) {
+            arguments.add(argument.toString());
+        }
+        return arguments;
     }
 
     private void processCliArgs(String[] args) throws Exception {
@@ -191,27 +632,283 @@ public class DirectusToolsCli {
         arguments.remove(0);
 
         CliCommandMethodInfo cliCommandInfoMethod = COMMAND_METHODS.get(args[0].toLowerCase());
-        if (cliCommandInfoMethod.argCount != arguments.size()) {
+        String optionError = extractOptions(cliCommandInfoMethod, arguments);
+        if (optionError != null || cliCommandInfoMethod.argCount != arguments.size()) {
 
-            System.out.println("Command argument count is wrong");
-            System.out.println();
+            out.println(optionError != null ? optionError : "Command argument count is wrong");
+            out.println();
 
             for (String descriptionLine : cliCommandInfoMethod.descriptionLines) {
-                System.out.println(descriptionLine);
+                out.println(descriptionLine);
             }
-            System.out.println();
-            System.exit(-2);
+            out.println();
+            throw exit(-2);
+        }
+
+        if (!cliCommandInfoMethod.perEnvironment) {
+            try {
+                cliCommandInfoMethod.method.invoke(this, (Object) arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            return;
+        }
+
+        if (options.containsKey("--environments")) {
+            runForEnvironments(cliCommandInfoMethod, arguments);
+            return;
         }
 
         checkEnvironmentVars();
         String apiBaseUrl = System.getenv("DIRECTUS_API_HOST");
         String token = System.getenv("DIRECTUS_ADMIN_TOKEN");
-        sdk = new DirectusAdministrationSdk(apiBaseUrl, token);
-        
-        // test a basic call to see if things are working
-        sdk.getDirectusData("/");
+        DirectusAdministrationSdk commandSdk = sharedHttpClient == null ? new DirectusAdministrationSdk(apiBaseUrl, token)
+                        : new DirectusAdministrationSdk(apiBaseUrl, "_", token, sharedHttpClient,
+                            DirectusAdministrationSdk.DEFAULT_REQUEST_TIMEOUT);
+        ExecutionPlan plan = runCommand(cliCommandInfoMethod, arguments, commandSdk,
+            metricsName(cliCommandInfoMethod.name));
+        if (plan != null && plan.hasFailures()) {
+            throw exit(-7);
+        }
+    }
+
+
+    /**
+     * runs the command with the sdk configured according to the global options and closes the sdk
+     *
+     * @return the plan in a dry run, null otherwise
+     */
+    private ExecutionPlan runCommand(CliCommandMethodInfo cliCommandInfoMethod, List<String> arguments,
+        DirectusAdministrationSdk sdk, String metricsName) throws Exception {
+        this.sdk = sdk;
+        configureSdk(sdk);
+        ExecutionPlan plan = null;
+        enableResponseCacheIfConfigured();
+        enableRequestCompressionIfConfigured();
+        if (options.containsKey("--dry-run")) {
+            plan = sdk.enableDryRun();
+        } else {
+            enableSchemaCacheIfConfigured();
+        }
+        enableJdbcBackendIfConfigured();
+        SimpleRequestMetrics metrics = null;
+        if (options.containsKey("--stats")) {
+            metrics = (SimpleRequestMetrics) sdk.getMetrics();
+            metrics.registerMBean(metricsName);
+        }
+        try {
+            if (sharedHttpClient == null) {
+                // test a basic call to see if things are working, repl and serve did that once when they started
+                sdk.getDirectusData("/");
+            }
+
+            cliCommandInfoMethod.method.invoke(this, (Object) arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            sdk.close();
+            if (metrics != null) {
+                metrics.unregisterMBean();
+                out.println();
+                out.print(metrics.getSummary());
+                if (sdk.getResponseCache() != null) {
+                    out.println(sdk.getResponseCache());
+                }
+            }
+        }
+
+        if (plan != null) {
+            out.println();
+            out.println("dry run, nothing was changed. Planned api calls:");
+            out.print(plan);
+        }
+        return plan;
+    }
+
+
+    private String metricsName(String name) {
+        return sharedHttpClient == null ? name : name + '#' + COMMAND_COUNT.incrementAndGet();
+    }
+
+
+    /**
+     * applies the retry and rate limit options
+     */
+    private void configureSdk(DirectusAdministrationSdk sdk) {
+        sdk.setRetryPolicy(new RetryPolicy(getPositiveIntOption("--max-attempts", RetryPolicy.DEFAULT_MAX_ATTEMPTS),
+            RetryPolicy.DEFAULT_INITIAL_BACKOFF, RetryPolicy.DEFAULT_MAX_BACKOFF));
+        if (options.containsKey("--rate-limit")) {
+            // no burst, the requests are spread evenly
+            sdk.setRateLimiter(new RateLimiter(getPositiveIntOption("--rate-limit", 1), 1));
+        }
+    }
+
+
+    /**
+     * runs the command against all environments of the {@code --environments} file at the same time, each with
+     * its own sdk and output
+     */
+    private void runForEnvironments(CliCommandMethodInfo cliCommandInfoMethod, List<String> arguments)
+                    throws Exception {
+        List<DirectusEnvironment> environments =
+            DirectusEnvironment.readAll(getReadableFileOrFail(options.get("--environments")));
+        String onFailure = options.getOrDefault("--on-failure", "continue");
+        if (!List.of("continue", "fail-fast").contains(onFailure)) {
+            err.println("Option '--on-failure' must be continue or fail-fast but was '" + onFailure + "'.");
+            throw exit(-3);
+        }
+        MultiEnvironmentRunner runner = new MultiEnvironmentRunner(environments,
+            "fail-fast".equals(onFailure) ? MultiEnvironmentRunner.FailurePolicy.FAIL_FAST
+                            : MultiEnvironmentRunner.FailurePolicy.CONTINUE,
+            environments.size());
+        List<MultiEnvironmentRunner.Result> results = runner.run((environment, environmentSdk, environmentOut) -> {
+            ExecutionPlan plan = new DirectusToolsCli(options, environmentOut, environmentOut, null,
+                environment.getName())
+                .runCommand(cliCommandInfoMethod, new ArrayList<>(arguments), environmentSdk,
+                    metricsName(cliCommandInfoMethod.name + '@' + environment.getName()));
+            if (plan != null && plan.hasFailures()) {
+                throw new IllegalStateException("planned steps would fail");
+            }
+        }, out);
+
+        out.print(MultiEnvironmentRunner.getSummary(results));
+        if (results.stream().anyMatch(r -> r.getStatus() != MultiEnvironmentRunner.Status.SUCCEEDED)) {
+            throw exit(-8);
+        }
+    }
+
+
+    /**
+     * removes all options ({@code --name value}) the command supports, the global options and the global flags
+     * from the arguments and keeps them in {@link #options}, flags with the value "true"
+     * 
+     * @return an error message if an option is unknown or misses its value, null otherwise
+     */
+    private String extractOptions(CliCommandMethodInfo cliCommandInfoMethod, List<String> arguments) {
+        for (int i = 0; i < arguments.size();) {
+            String argument = arguments.get(i);
+            if (!argument.startsWith("--")) {
+                i++;
+                continue;
+            }
+            if (GLOBAL_FLAGS.contains(argument)) {
+                options.put(argument, "true");
+                arguments.remove(i);
+                continue;
+            }
+            if (!cliCommandInfoMethod.options.contains(argument) && !GLOBAL_OPTIONS.contains(argument)) {
+                return "Unknown option '" + argument + '\'';
+            }
+            if (i + 1 >= arguments.size()) {
+                return "Option '" + argument + "' requires a value";
+            }
+            options.put(argument, arguments.get(i + 1));
+            arguments.subList(i, i + 2).clear();
+        }
+        return null;
+    }
+
+
+    private int getIntOption(String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            err.println("Option '" + name + "' requires a number but was '" + value + "'.");
+            throw exit(-3);
+        }
+    }
 
-        cliCommandInfoMethod.method.invoke(this, (Object) arguments);
+
+    private int getPositiveIntOption(String name, int defaultValue) {
+        int value = getIntOption(name, defaultValue);
+        if (value < 1) {
+            err.println("Option '" + name + "' must be at least 1 but was " + value + '.');
+            throw exit(-3);
+        }
+        return value;
+    }
+
+
+    /**
+     * @return the file {@code path + suffix}, with {@code .<environment>} before the suffix when running against
+     *         several environments, so they don't write into the same checkpoint, log or export
+     */
+    private File environmentFile(String path, String suffix) {
+        return new File(environmentName == null ? path + suffix : path + '.' + environmentName + suffix);
+    }
+
+
+    /**
+     * @return the directory, or its subdirectory named like the environment when running against several
+     */
+    private File environmentDirectory(String path) {
+        return environmentName == null ? new File(path) : new File(path, environmentName);
+    }
+
+
+    private void enableSchemaCacheIfConfigured() {
+        String ttl = System.getenv("DIRECTUS_SCHEMA_CACHE_TTL");
+        if (ttl == null) {
+            return;
+        }
+        String directory = System.getenv("DIRECTUS_SCHEMA_CACHE_DIR");
+        try {
+            sdk.enableSchemaCache(Duration.ofSeconds(Long.parseLong(ttl)), new File(directory == null ? "." : directory));
+        } catch (NumberFormatException e) {
+            err.println("environment variable DIRECTUS_SCHEMA_CACHE_TTL must be a number of seconds but was '" +
+                ttl + "'.");
+            throw exit(-3);
+        }
+    }
+
+
+    private void enableResponseCacheIfConfigured() {
+        String ttl = System.getenv("DIRECTUS_RESPONSE_CACHE_TTL");
+        if (ttl == null) {
+            return;
+        }
+        String directory = System.getenv("DIRECTUS_RESPONSE_CACHE_DIR");
+        try {
+            sdk.enableResponseCache(DirectusAdministrationSdk.DEFAULT_RESPONSE_CACHE_SIZE,
+                Duration.ofSeconds(Long.parseLong(ttl)), directory == null ? null : new File(directory));
+        } catch (NumberFormatException e) {
+            err.println("environment variable DIRECTUS_RESPONSE_CACHE_TTL must be a number of seconds but was '" +
+                ttl + "'.");
+            throw exit(-3);
+        }
+    }
+
+
+    private void enableRequestCompressionIfConfigured() {
+        String threshold = System.getenv("DIRECTUS_REQUEST_COMPRESSION_THRESHOLD");
+        if (threshold == null) {
+            return;
+        }
+        try {
+            sdk.setRequestCompressionThreshold(Long.parseLong(threshold));
+        } catch (IllegalArgumentException e) {
+            err.println("environment variable DIRECTUS_REQUEST_COMPRESSION_THRESHOLD must be a number of bytes but was '" +
+                threshold + "'.");
+            throw exit(-3);
+        }
+    }
+
+
+    private void enableJdbcBackendIfConfigured() throws IOException {
+        String jdbcUrl = System.getenv("DIRECTUS_JDBC_URL");
+        if (jdbcUrl == null) {
+            return;
+        }
+        if (options.containsKey("--environments")) {
+            // the variable names one database, not one per environment
+            err.println("ignoring DIRECTUS_JDBC_URL, data is moved via the api when running against several environments");
+            return;
+        }
+        sdk.enableJdbcBackend(jdbcUrl, System.getenv("DIRECTUS_JDBC_USER"), System.getenv("DIRECTUS_JDBC_PASSWORD"));
     }
 
 
@@ -219,13 +916,13 @@ public class DirectusToolsCli {
         File file = new File(path);
 
         if (!file.exists()) {
-            System.err.println("Passed file '" + path + "' doesn't exist.");
-            System.exit(-5);
+            err.println("Passed file '" + path + "' doesn't exist.");
+            throw exit(-5);
         }
 
         if (!file.canRead()) {
-            System.err.println("Cannot read file '" + path + "'.");
-            System.exit(-6);
+            err.println("Cannot read file '" + path + "'.");
+            throw exit(-6);
         }
 
         return file;
@@ -233,9 +930,57 @@ public class DirectusToolsCli {
 
 
 
+    /**
+     * runs one command line like {@link #main(String[])}, but doesn't end the process
+     *
+     * @param out where the command's output and errors go
+     * @param httpClient the client shared by the commands of repl or serve
+     * @return the status the process would exit with
+     */
+    static int execute(List<String> args, PrintStream out, HttpClient httpClient) {
+        try {
+            new DirectusToolsCli(new HashMap<>(), out, out, httpClient).processCliArgs(args.toArray(new String[0]));
+            return 0;
+        } catch (CommandExit e) {
+            return e.status;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            e.printStackTrace(out);
+            return 1;
+        }
+    }
+
+
+    private static CommandExit exit(int status) {
+        return new CommandExit(status);
+    }
+
+
     public static void main(String[] args) throws Exception {
         DirectusToolsCli directusToolsCli = new DirectusToolsCli();
-        directusToolsCli.processCliArgs(args);
+        try {
+            directusToolsCli.processCliArgs(args);
+        } catch (CommandExit e) {
+            System.exit(e.status);
+        }
+    }
+
+
+    /**
+     * ends a command with an exit status, {@link #main(String[])} ends the process with it, repl and serve only
+     * the command
+     */
+    static class CommandExit extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        CommandExit(int status) {
+            super("exit " + status, null, false, false);
+            this.status = status;
+        }
     }
 
 
@@ -246,20 +991,34 @@ public class DirectusToolsCli {
 
         int argCount();
 
+        /**
+         * names of the options (e.g. {@code --parallelism}) the command accepts, each followed by a value
+         */
+        String[] options() default {};
+
+        /**
+         * false for commands that don't need {@link #sdk}, they are run once even with {@code --environments}
+         */
+        boolean perEnvironment() default true;
+
         String[] descriptionLines();
     }
 
-    private class CliCommandMethodInfo {
+    private static class CliCommandMethodInfo {
         private final List<String> descriptionLines;
         private final int argCount;
+        private final List<String> options;
         private final String name;
         private final Method method;
+        private final boolean perEnvironment;
 
         public CliCommandMethodInfo(CliCommandInfo cliCommandInfo, Method m) {
             this.method = m;
             this.name = cliCommandInfo.name().toLowerCase();
             this.argCount = cliCommandInfo.argCount();
+            this.options = List.of(cliCommandInfo.options());
             this.descriptionLines = List.of(cliCommandInfo.descriptionLines());
+            this.perEnvironment = cliCommandInfo.perEnvironment();
         }
     }
 
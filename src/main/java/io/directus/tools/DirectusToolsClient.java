@@ -0,0 +1,79 @@
+package io.directus.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+
+
+/**
+ * sends a command line to a running {@code serve} and exits with its status, without loading the sdk or
+ * connecting to the api itself
+ *
+ * <pre>
+ * java -cp directus-tools.jar io.directus.tools.DirectusToolsClient [--port-file file] {command} {arguments}
+ * </pre>
+ * {@code stop} stops the server.
+ */
+public final class DirectusToolsClient {
+
+    private DirectusToolsClient() {
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        Path portFile = Path.of(CliServer.DEFAULT_PORT_FILE);
+        if (arguments.size() >= 2 && "--port-file".equals(arguments.get(0))) {
+            portFile = Path.of(arguments.get(1));
+            arguments.subList(0, 2).clear();
+        }
+        if (arguments.isEmpty()) {
+            System.out.println("DirectusToolsClient [--port-file file] {command} {arguments}");
+            System.out.println("  runs the command in the jvm started with serve, stop stops it");
+            System.exit(-1);
+        }
+        if (!Files.isReadable(portFile)) {
+            System.err.println("Cannot read port file '" + portFile + "', start the server with serve first.");
+            System.exit(-5);
+        }
+
+        List<String> portFileLines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+        int port = Integer.parseInt(portFileLines.get(0).trim());
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            writer.write(portFileLines.get(1).trim() + '\n' + new JSONArray(arguments) + '\n');
+            writer.flush();
+
+            BufferedReader reader =
+                new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            // the last line is the exit status, so every line is printed once the next one arrived
+            String previous = null;
+            for (String line; (line = reader.readLine()) != null;) {
+                if (previous != null) {
+                    System.out.println(previous);
+                }
+                previous = line;
+            }
+            if (previous == null || !previous.startsWith(CliServer.EXIT_PREFIX)) {
+                if (previous != null) {
+                    System.out.println(previous);
+                }
+                System.err.println("The server closed the connection before the command was done.");
+                System.exit(1);
+            }
+            System.exit(Integer.parseInt(previous.substring(CliServer.EXIT_PREFIX.length())));
+        }
+    }
+
+}
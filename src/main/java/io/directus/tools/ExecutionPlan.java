@@ -0,0 +1,168 @@
+package io.directus.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * the api calls a dry run of the SDK would have made, in order
+ *
+ * Steps that move data carry an estimate of the affected rows and the number of requests. Steps that would fail
+ * against the current schema (e.g. creating a collection that exists) are flagged with the reason.
+ */
+public class ExecutionPlan {
+
+    /**
+     * a single planned write
+     */
+    public static final class Step {
+        private final String method;
+        private final String path;
+        private final String description;
+        private final Long estimatedRows;
+        private final Long estimatedRequests;
+        private final List<JsonDiff.Change> changes;
+        private final String failure;
+
+        Step(String method, String path, String description, Long estimatedRows, Long estimatedRequests,
+            List<JsonDiff.Change> changes, String failure) {
+            this.method = method;
+            this.path = path;
+            this.description = description;
+            this.estimatedRows = estimatedRows;
+            this.estimatedRequests = estimatedRequests;
+            this.changes = changes == null ? Collections.emptyList() : changes;
+            this.failure = failure;
+        }
+
+
+        public String getMethod() {
+            return method;
+        }
+
+
+        public String getPath() {
+            return path;
+        }
+
+
+        public String getDescription() {
+            return description;
+        }
+
+
+        /**
+         * @return the number of rows this step would write, null if it doesn't move data or it is unknown
+         */
+        public Long getEstimatedRows() {
+            return estimatedRows;
+        }
+
+
+        /**
+         * @return the number of requests this step would send, null for a single request
+         */
+        public Long getEstimatedRequests() {
+            return estimatedRequests;
+        }
+
+
+        public List<JsonDiff.Change> getChanges() {
+            return changes;
+        }
+
+
+        /**
+         * @return why this step would fail against the current schema, null if it is expected to work
+         */
+        public String getFailure() {
+            return failure;
+        }
+
+
+        public JSONObject toJson() {
+            JSONObject step = new JSONObject()
+                .put("method", method)
+                .put("path", path)
+                .put("description", description);
+            if (estimatedRows != null) {
+                step.put("estimated_rows", estimatedRows);
+            }
+            if (estimatedRequests != null) {
+                step.put("estimated_requests", estimatedRequests);
+            }
+            if (!changes.isEmpty()) {
+                step.put("changes", JsonDiff.toJson(changes));
+            }
+            if (failure != null) {
+                step.put("failure", failure);
+            }
+            return step;
+        }
+
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder(method).append(' ').append(path).append("  ").append(description);
+            if (estimatedRows != null) {
+                line.append(" (").append(estimatedRows).append(" rows");
+                if (estimatedRequests != null) {
+                    line.append(", ").append(estimatedRequests).append(" requests");
+                }
+                line.append(')');
+            }
+            if (failure != null) {
+                line.append("  WOULD FAIL: ").append(failure);
+            }
+            changes.forEach(c -> line.append("\n    ").append(c));
+            return line.toString();
+        }
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+
+    synchronized void add(String method, String path, String description) {
+        add(method, path, description, null, null, null, null);
+    }
+
+
+    synchronized void add(String method, String path, String description, Long estimatedRows,
+        Long estimatedRequests, List<JsonDiff.Change> changes, String failure) {
+        steps.add(new Step(method, path, description, estimatedRows, estimatedRequests, changes, failure));
+    }
+
+
+    public synchronized List<Step> getSteps() {
+        return new ArrayList<>(steps);
+    }
+
+
+    /**
+     * @return true if any step would fail against the current schema
+     */
+    public synchronized boolean hasFailures() {
+        return steps.stream().anyMatch(s -> s.failure != null);
+    }
+
+
+    public synchronized JSONArray toJson() {
+        JSONArray plan = new JSONArray();
+        steps.forEach(s -> plan.put(s.toJson()));
+        return plan;
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder plan = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++) {
+            plan.append(i + 1).append(". ").append(steps.get(i)).append('\n');
+        }
+        return plan.length() == 0 ? "nothing to do\n" : plan.toString();
+    }
+
+}
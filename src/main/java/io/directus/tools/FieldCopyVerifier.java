@@ -0,0 +1,265 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * checks that the data of one field was copied into another field of the same collection, e.g. before the old
+ * field of a rename is dropped
+ *
+ * The ids of the collection are split into ranges that are read concurrently, page by page with keyset pagination.
+ * Per range the {@code (id, value)} pairs of both fields are hashed into two digests, rows without a value in the
+ * old field are skipped like the copy skips them. Only ranges whose digests differ are read again and compared row
+ * by row, which also tells digests that differ for equal json (e.g. another key order) from real differences.
+ * Memory use depends on the page size and the parallelism, not on the size of the collection. The number of rows
+ * read is compared with the number of items the server counts with a value in the old field.
+ */
+class FieldCopyVerifier {
+
+    /**
+     * ranges per thread, more ranges keep the threads busy if ids are unevenly distributed and make re-checks smaller
+     */
+    private static final int RANGES_PER_THREAD = 4;
+    static final int MAX_REPORTED_IDS = 100;
+
+    private final Logger logger = Logger.getLogger(FieldCopyVerifier.class.getName());
+
+    private final DirectusAdministrationSdk sdk;
+    private final String collection;
+    private final String oldField;
+    private final String newField;
+    private final int parallelism;
+    private final int pageSize;
+
+    FieldCopyVerifier(DirectusAdministrationSdk sdk, String collection, String oldField, String newField,
+        int parallelism, int pageSize) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        this.collection = Objects.requireNonNull(collection, "collection");
+        this.oldField = Objects.requireNonNull(oldField, "oldField");
+        this.newField = Objects.requireNonNull(newField, "newField");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1 but was " + parallelism);
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1 but was " + pageSize);
+        }
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+    }
+
+
+    /**
+     * @return the report with the number of compared rows and the rows whose values differ, at most
+     *         {@value #MAX_REPORTED_IDS} of their ids are listed
+     */
+    JSONObject verify() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        JSONObject report = new JSONObject()
+            .put("collection", collection)
+            .put("from", oldField)
+            .put("to", newField);
+
+        Long firstId = readBoundary("id");
+        if (firstId == null) {
+            return report.put("rows", 0L)
+                .put("ranges", 0)
+                .put("mismatching_ranges", 0)
+                .put("mismatching_rows", 0L)
+                .put("mismatching_ids", new JSONArray())
+                .put("ms", (System.nanoTime() - start) / 1_000_000);
+        }
+        long lastId = readBoundary("-id");
+        List<long[]> ranges = split(firstId, lastId);
+        logger.info("verifying the copy of '" + oldField + "' to '" + newField + "' in collection '" + collection +
+            "' in " + ranges.size() + " ranges of ids " + firstId + " to " + lastId);
+
+        List<CompletableFuture<RangeResult>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ranges.size()));
+        try {
+            for (long[] range : ranges) {
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return verifyRange(range[0], range[1]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted while verifying collection '" + collection +
+                            '\'', e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .join();
+        } finally {
+            executor.shutdown();
+        }
+
+        long rows = 0;
+        long mismatchingRows = 0;
+        int mismatchingRanges = 0;
+        JSONArray mismatchingIds = new JSONArray();
+        for (CompletableFuture<RangeResult> future : results) {
+            RangeResult result;
+            try {
+                result = future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            rows += result.rows;
+            mismatchingRows += result.mismatchingIds.size() + result.unreportedMismatches;
+            if (!result.mismatchingIds.isEmpty()) {
+                mismatchingRanges++;
+            }
+            for (Long id : result.mismatchingIds) {
+                if (mismatchingIds.length() < MAX_REPORTED_IDS) {
+                    mismatchingIds.put(id);
+                }
+            }
+        }
+        Long count = sdk.countItems(collection, "&filter[" + oldField + "][nnull]=1");
+        if (count == null) {
+            logger.warning("couldn't count the items of collection '" + collection + "' with a value in '" +
+                oldField + "', so it isn't checked that all " + rows + " compared rows were read");
+        } else if (count != rows) {
+            throw new IllegalStateException("compared " + rows + " rows of collection '" + collection + "' but " +
+                count + " have a value in '" + oldField + "', items were added or removed while verifying or " +
+                "pages were read incompletely. Verify again.");
+        }
+        return report.put("rows", rows)
+            .put("ranges", ranges.size())
+            .put("mismatching_ranges", mismatchingRanges)
+            .put("mismatching_rows", mismatchingRows)
+            .put("mismatching_ids", mismatchingIds)
+            .put("ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+
+    /**
+     * @param sort {@code id} for the first id, {@code -id} for the last
+     * @return the first or last id of the collection, null if it is empty
+     */
+    private Long readBoundary(String sort) throws IOException, InterruptedException {
+        JSONObject directusObject =
+            sdk.getDirectusData("/items/" + collection + "?fields=id&sort=" + sort + "&limit=1");
+        JSONArray data = directusObject.optJSONArray("data");
+        return data == null || data.isEmpty() ? null : data.getJSONObject(0).getLong("id");
+    }
+
+
+    /**
+     * @return ranges of ids, each as {@code [after, until]}, covering {@code firstId} to {@code lastId}
+     */
+    private List<long[]> split(long firstId, long lastId) {
+        long span = lastId - firstId + 1;
+        long rangeCount =
+            Math.max(1, Math.min((long) parallelism * RANGES_PER_THREAD, (span + pageSize - 1) / pageSize));
+        long rangeSize = (span + rangeCount - 1) / rangeCount;
+        List<long[]> ranges = new ArrayList<>();
+        for (long after = firstId - 1; after < lastId; after += rangeSize) {
+            ranges.add(new long[] {after, Math.min(after + rangeSize, lastId)});
+        }
+        return ranges;
+    }
+
+
+    private RangeResult verifyRange(long afterId, long untilId) throws IOException, InterruptedException {
+        MessageDigest oldDigest = newDigest();
+        MessageDigest newDigest = newDigest();
+        RangeResult result = new RangeResult();
+        readRange(afterId, untilId, item -> {
+            result.rows++;
+            update(oldDigest, item.getLong("id"), item.get(oldField));
+            update(newDigest, item.getLong("id"), item.opt(newField));
+        });
+        if (Arrays.equals(oldDigest.digest(), newDigest.digest())) {
+            return result;
+        }
+
+        logger.info("digests of ids " + (afterId + 1) + " to " + untilId + " differ, comparing the rows");
+        readRange(afterId, untilId, item -> {
+            Object newValue = item.opt(newField);
+            if (newValue == null || !DirectusAdministrationSdk.isSameValue(item.get(oldField), newValue)) {
+                if (result.mismatchingIds.size() < MAX_REPORTED_IDS) {
+                    result.mismatchingIds.add(item.getLong("id"));
+                } else {
+                    result.unreportedMismatches++;
+                }
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * passes the items with a value in the old field and an id in {@code (afterId, untilId]} to the consumer,
+     * reading one page at a time until a page is empty or reaches {@code untilId}. A page shorter than the page
+     * size doesn't end the range, the server may cap the limit.
+     */
+    private void readRange(long afterId, long untilId, Consumer<JSONObject> consumer)
+                    throws IOException, InterruptedException {
+        long lastId = afterId;
+        boolean lastPage = false;
+        while (!lastPage) {
+            JSONObject directusObject = sdk.getDirectusData("/items/" + collection + "?fields=id," + oldField + ',' +
+                newField + "&sort=id&limit=" + pageSize + "&filter[id][gt]=" + lastId + "&filter[id][lte]=" + untilId);
+            JSONArray page = directusObject.has("data") ? directusObject.getJSONArray("data") : new JSONArray();
+            for (int i = 0; i < page.length(); i++) {
+                JSONObject item = page.getJSONObject(i);
+                lastId = item.getLong("id");
+                if (item.has(oldField) && !item.isNull(oldField)) {
+                    consumer.accept(item);
+                }
+            }
+            lastPage = page.isEmpty() || lastId >= untilId;
+        }
+    }
+
+
+    private static void update(MessageDigest digest, long id, Object value) {
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+        // strings are quoted and escaped, so the line break separates the values unambiguously
+        digest.update((JSONObject.valueToString(value) + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    private static final class RangeResult {
+
+        long rows;
+        final List<Long> mismatchingIds = new ArrayList<>();
+        long unreportedMismatches;
+
+    }
+
+}
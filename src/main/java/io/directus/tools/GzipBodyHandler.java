@@ -0,0 +1,266 @@
+package io.directus.tools;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * wraps a body handler to inflate responses sent with {@code Content-Encoding: gzip} while they are received, so
+ * the wrapped handler gets the body as if it was sent uncompressed. Other responses are passed through.
+ *
+ * Every buffer received is inflated into new buffers right away and handed on, nothing waits for the end of the
+ * body, so streamed bodies (e.g. {@code BodyHandlers.ofInputStream()}) stay streamed. The checksum and size in
+ * the gzip trailer are checked before the body is complete. The compressed and inflated sizes are reported to the
+ * metrics.
+ */
+class GzipBodyHandler<T> implements BodyHandler<T> {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final BodyHandler<T> delegate;
+    private final RequestMetrics metrics;
+    private final String endpoint;
+
+    GzipBodyHandler(BodyHandler<T> delegate, RequestMetrics metrics, String endpoint) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+    }
+
+
+    @Override
+    public BodySubscriber<T> apply(ResponseInfo responseInfo) {
+        boolean gzip = responseInfo.headers().allValues("Content-Encoding").stream()
+            .anyMatch(encoding -> "gzip".equalsIgnoreCase(encoding.trim()));
+        if (!gzip || responseInfo.statusCode() == 204 || responseInfo.statusCode() == 304) {
+            return delegate.apply(responseInfo);
+        }
+        return new InflatingSubscriber(delegate.apply(responseInfo));
+    }
+
+
+    /**
+     * @return the length of the gzip header at the start of the bytes, -1 if it isn't complete yet
+     */
+    static int headerLength(byte[] bytes, int length) throws IOException {
+        if (length < 10) {
+            return -1;
+        }
+        if ((bytes[0] & 0xff) != 0x1f || (bytes[1] & 0xff) != 0x8b || bytes[2] != 8) {
+            throw new IOException("response is not gzip compressed as its Content-Encoding says");
+        }
+        int flags = bytes[3];
+        int position = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (length < position + 2) {
+                return -1;
+            }
+            position += 2 + ((bytes[position] & 0xff) | (bytes[position + 1] & 0xff) << 8);
+        }
+        for (int flag : new int[] {FNAME, FCOMMENT}) {
+            if ((flags & flag) != 0) {
+                // zero terminated
+                do {
+                    if (position >= length) {
+                        return -1;
+                    }
+                } while (bytes[position++] != 0);
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        return position <= length ? position : -1;
+    }
+
+
+    private class InflatingSubscriber implements BodySubscriber<T> {
+
+        private final BodySubscriber<T> subscriber;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private Flow.Subscription subscription;
+
+        // the header until it is complete, then the trailer
+        private byte[] pending = new byte[64];
+        private int pendingLength;
+        private boolean inBody;
+        private boolean failed;
+        private long compressedBytes;
+        private long inflatedBytes;
+
+        InflatingSubscriber(BodySubscriber<T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return subscriber.getBody();
+        }
+
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscriber.onSubscribe(subscription);
+        }
+
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (failed) {
+                return;
+            }
+            List<ByteBuffer> inflated = new ArrayList<>();
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    compressedBytes += buffer.remaining();
+                    receive(buffer, inflated);
+                }
+            } catch (IOException e) {
+                failed = true;
+                inflater.end();
+                subscription.cancel();
+                subscriber.onError(e);
+                return;
+            }
+            if (inflated.isEmpty()) {
+                // the downstream subscriber asked for buffers and got none, so ask for them again
+                subscription.request(1);
+            } else {
+                subscriber.onNext(inflated);
+            }
+        }
+
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!failed) {
+                failed = true;
+                inflater.end();
+                subscriber.onError(throwable);
+            }
+        }
+
+
+        @Override
+        public void onComplete() {
+            if (failed) {
+                return;
+            }
+            boolean complete = inBody && inflater.finished() && pendingLength == pending.length;
+            inflater.end();
+            if (!complete) {
+                subscriber.onError(new EOFException("gzip compressed response ended early after " +
+                    compressedBytes + " bytes"));
+                return;
+            }
+            metrics.responseBodyDecompressed(endpoint, compressedBytes, inflatedBytes);
+            subscriber.onComplete();
+        }
+
+
+        private void receive(ByteBuffer buffer, List<ByteBuffer> inflated) throws IOException {
+            if (!inBody) {
+                append(buffer);
+                int headerLength = headerLength(pending, pendingLength);
+                if (headerLength < 0) {
+                    return;
+                }
+                inBody = true;
+                // the start of the compressed data came with the header
+                buffer = ByteBuffer.wrap(Arrays.copyOfRange(pending, headerLength, pendingLength));
+                pending = new byte[8];
+                pendingLength = 0;
+            }
+            if (!inflater.finished()) {
+                inflate(buffer, inflated);
+            }
+            if (inflater.finished() && pendingLength < pending.length) {
+                append(buffer);
+                if (pendingLength == pending.length) {
+                    checkTrailer();
+                }
+            }
+        }
+
+
+        private void inflate(ByteBuffer buffer, List<ByteBuffer> inflated) throws IOException {
+            inflater.setInput(buffer);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int chunkLength = 0;
+            try {
+                while (!inflater.finished()) {
+                    int length = inflater.inflate(chunk, chunkLength, chunk.length - chunkLength);
+                    if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    crc.update(chunk, chunkLength, length);
+                    chunkLength += length;
+                    if (chunkLength == chunk.length) {
+                        inflated.add(ByteBuffer.wrap(chunk));
+                        inflatedBytes += chunkLength;
+                        chunk = new byte[CHUNK_SIZE];
+                        chunkLength = 0;
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("gzip compressed response is corrupt", e);
+            }
+            if (inflater.needsDictionary()) {
+                throw new IOException("gzip compressed response needs a preset dictionary");
+            }
+            if (chunkLength > 0) {
+                inflated.add(ByteBuffer.wrap(chunk, 0, chunkLength));
+                inflatedBytes += chunkLength;
+            }
+        }
+
+
+        private void checkTrailer() throws IOException {
+            long checksum = littleEndianInt(0);
+            long size = littleEndianInt(4);
+            if (checksum != crc.getValue() || size != (inflatedBytes & 0xffffffffL)) {
+                throw new IOException("gzip compressed response is corrupt, its checksum or size doesn't match");
+            }
+        }
+
+
+        private long littleEndianInt(int offset) {
+            return (pending[offset] & 0xffL) | (pending[offset + 1] & 0xffL) << 8 |
+                (pending[offset + 2] & 0xffL) << 16 | (pending[offset + 3] & 0xffL) << 24;
+        }
+
+
+        /**
+         * copies the remaining bytes of the buffer into the pending bytes, in the trailer only up to its 8 bytes
+         */
+        private void append(ByteBuffer buffer) {
+            int length = inBody ? Math.min(buffer.remaining(), pending.length - pendingLength) : buffer.remaining();
+            if (pendingLength + length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+            }
+            buffer.get(pending, pendingLength, length);
+            pendingLength += length;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * request bodies compressed with gzip, to be sent with {@code Content-Encoding: gzip}
+ *
+ * The body is read once and compressed into 64 KB chunks, so it is held in memory with its compressed size, which
+ * for json is mostly a tenth or less. The chunks can be published again when a request is retried.
+ */
+final class GzipBodyPublisher {
+
+    private GzipBodyPublisher() {
+    }
+
+
+    /**
+     * @return the body compressed, with its compressed size as content length
+     */
+    static BodyPublisher compress(BodyPublisher body) throws IOException, InterruptedException {
+        JsonBodyPublisher.ChunkOutputStream chunks = new JsonBodyPublisher.ChunkOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(chunks, 8 * 1024);
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        body.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                try {
+                    if (buffer.hasArray()) {
+                        gzip.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    } else {
+                        byte[] bytes = new byte[buffer.remaining()];
+                        buffer.get(bytes);
+                        gzip.write(bytes);
+                    }
+                } catch (IOException e) {
+                    // writing into memory doesn't fail
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+
+            @Override
+            public void onError(Throwable throwable) {
+                written.completeExceptionally(throwable);
+            }
+
+
+            @Override
+            public void onComplete() {
+                try {
+                    gzip.close();
+                    written.complete(null);
+                } catch (IOException e) {
+                    written.completeExceptionally(e);
+                }
+            }
+        });
+        try {
+            // the publishers of the jdk and JsonBodyPublisher publish while they are subscribed, so this doesn't wait
+            written.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("reading the request body failed", e.getCause());
+        }
+        return chunks.toBodyPublisher();
+    }
+
+}
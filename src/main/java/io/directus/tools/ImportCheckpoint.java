@@ -0,0 +1,130 @@
+package io.directus.tools;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * keeps track of the chunks of an import that made it to the server, so a rerun only sends the missing ones
+ *
+ * The file is a plain text journal, every finished chunk appends one line:
+ * <pre>
+ * chunk_size 500
+ * done 0 500
+ * failed 1 (POST http://...) 500/...
+ * done 1 500
+ * </pre>
+ * A chunk counts as done if any line marks it as done. Chunk numbers depend on the chunk size, so resuming
+ * with a different chunk size is refused.
+ */
+class ImportCheckpoint implements Closeable {
+
+    private static final String CHUNK_SIZE = "chunk_size";
+    private static final String DONE = "done";
+    private static final String FAILED = "failed";
+
+    private final Path file;
+    private final Set<Long> doneChunks = new HashSet<>();
+    private final Set<Long> failedChunks = new HashSet<>();
+    private final BufferedWriter writer;
+
+    private ImportCheckpoint(Path file, BufferedWriter writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+
+    static ImportCheckpoint open(Path file, int chunkSize) throws IOException {
+        Objects.requireNonNull(file, "file");
+        Set<Long> done = new HashSet<>();
+        boolean exists = Files.exists(file);
+        if (exists) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] parts = line.split(" ", 3);
+                if (CHUNK_SIZE.equals(parts[0]) && Integer.parseInt(parts[1]) != chunkSize) {
+                    throw new IllegalStateException("checkpoint file '" + file + "' was written with chunk size " +
+                        parts[1] + ", resume with the same chunk size or delete the file to start over");
+                }
+                if (DONE.equals(parts[0])) {
+                    done.add(Long.parseLong(parts[1]));
+                }
+            }
+        }
+
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+        ImportCheckpoint checkpoint = new ImportCheckpoint(file, writer);
+        checkpoint.doneChunks.addAll(done);
+        if (!exists) {
+            checkpoint.append(CHUNK_SIZE + ' ' + chunkSize);
+        }
+        return checkpoint;
+    }
+
+
+    synchronized boolean isDone(long chunk) {
+        return doneChunks.contains(chunk);
+    }
+
+
+    synchronized int getDoneCount() {
+        return doneChunks.size();
+    }
+
+
+    synchronized void markDone(long chunk, int itemCount) throws IOException {
+        doneChunks.add(chunk);
+        failedChunks.remove(chunk);
+        append(DONE + ' ' + chunk + ' ' + itemCount);
+    }
+
+
+    synchronized void markFailed(long chunk, String reason) throws IOException {
+        failedChunks.add(chunk);
+        append(FAILED + ' ' + chunk + ' ' + String.valueOf(reason).replace('\n', ' '));
+    }
+
+
+    synchronized int getFailedCount() {
+        return failedChunks.size();
+    }
+
+
+    Path getFile() {
+        return file;
+    }
+
+
+    private void append(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        // flush every line, the whole point of the file is to survive a crash
+        writer.flush();
+    }
+
+
+    /**
+     * closes and removes the checkpoint file, e.g. once everything was imported
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+}
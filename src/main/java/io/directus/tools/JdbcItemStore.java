@@ -0,0 +1,272 @@
+package io.directus.tools;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * moves items with SQL on the database of a Directus 7 project, where every collection is a table with an
+ * {@code id} primary key and every field a column
+ *
+ * Statements are set based and every batch of rows is its own transaction: a copy is one {@code UPDATE} per
+ * {@code batchSize} ids, an insert one JDBC batch and a delete a few {@code DELETE ... IN} per batch. Identifiers are
+ * quoted the way the database reports, so this works on MySQL as well as on H2 in MySQL mode.
+ *
+ * Nothing of this goes through Directus: no revisions or activity are recorded, no hooks run and fields that
+ * Directus fills itself (e.g. owner or created_on) are left alone.
+ */
+class JdbcItemStore {
+
+    // long in lists take long to parse, on some databases longer than running several statements
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private final Logger logger = Logger.getLogger(JdbcItemStore.class.getName());
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final int batchSize;
+
+    JdbcItemStore(String jdbcUrl, String user, String password, int batchSize) {
+        this.jdbcUrl = Objects.requireNonNull(jdbcUrl, "jdbcUrl");
+        this.user = user;
+        this.password = password;
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1 but was " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+
+    String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+
+    /**
+     * fails if the database can't be reached
+     */
+    void checkConnection() throws SQLException {
+        try (Connection connection = connect()) {
+            logger.info("moving data with sql on " + connection.getMetaData().getDatabaseProductName() + ' ' +
+                connection.getMetaData().getDatabaseProductVersion() + " at " + jdbcUrl);
+        }
+    }
+
+
+    /**
+     * copies the non null values of a column into another one, {@code batchSize} rows per transaction in the
+     * order of their ids
+     *
+     * @param afterId only rows with a greater id are copied, null for all
+     * @param batchDone called with the highest id of every committed batch
+     * @return the number of rows updated
+     */
+    long copyColumn(String table, String fromColumn, String toColumn, Long afterId, LongConsumer batchDone)
+                    throws SQLException {
+        try (Connection connection = connect()) {
+            String quote = connection.getMetaData().getIdentifierQuoteString();
+            String id = quote(quote, "id");
+            String from = quote(quote, fromColumn);
+            // the id closing a batch: the batchSize'th id after the last batch
+            String nextBatchEnd = "SELECT " + id + " FROM " + quote(quote, table) + " WHERE " + id + " > ? ORDER BY " +
+                id + " LIMIT 1 OFFSET " + (batchSize - 1);
+            String update = "UPDATE " + quote(quote, table) + " SET " + quote(quote, toColumn) + " = " + from +
+                " WHERE " + id + " > ? AND " + id + " <= ? AND " + from + " IS NOT NULL";
+            String updateRest = "UPDATE " + quote(quote, table) + " SET " + quote(quote, toColumn) + " = " + from +
+                " WHERE " + id + " > ? AND " + from + " IS NOT NULL";
+
+            long updated = 0;
+            long lastId = afterId == null ? Long.MIN_VALUE : afterId;
+            try (PreparedStatement nextBatchEndStatement = connection.prepareStatement(nextBatchEnd);
+                PreparedStatement updateStatement = connection.prepareStatement(update)) {
+                while (true) {
+                    nextBatchEndStatement.setLong(1, lastId);
+                    Long batchEnd = null;
+                    try (ResultSet resultSet = nextBatchEndStatement.executeQuery()) {
+                        if (resultSet.next()) {
+                            batchEnd = resultSet.getLong(1);
+                        }
+                    }
+                    if (batchEnd == null) {
+                        break;
+                    }
+                    updateStatement.setLong(1, lastId);
+                    updateStatement.setLong(2, batchEnd);
+                    updated += commit(connection, updateStatement.executeUpdate());
+                    lastId = batchEnd;
+                    batchDone.accept(lastId);
+                }
+            }
+            // fewer than batchSize rows are left
+            try (PreparedStatement updateRestStatement = connection.prepareStatement(updateRest)) {
+                updateRestStatement.setLong(1, lastId);
+                updated += commit(connection, updateRestStatement.executeUpdate());
+            }
+            Long maxId = maxId(connection, quote, table);
+            if (maxId != null && maxId > lastId) {
+                batchDone.accept(maxId);
+            }
+            return updated;
+        }
+    }
+
+
+    /**
+     * inserts the items in one transaction with one JDBC batch per set of fields, json objects and arrays are
+     * stored as their json text
+     *
+     * @return the number of items inserted
+     */
+    int insertItems(String table, JSONArray items) throws SQLException {
+        Map<List<String>, List<JSONObject>> itemsByColumns = new LinkedHashMap<>();
+        for (Object object : items) {
+            JSONObject item = (JSONObject) object;
+            List<String> columns = new ArrayList<>(item.keySet());
+            Collections.sort(columns);
+            itemsByColumns.computeIfAbsent(columns, c -> new ArrayList<>()).add(item);
+        }
+
+        try (Connection connection = connect()) {
+            String quote = connection.getMetaData().getIdentifierQuoteString();
+            try {
+                for (Map.Entry<List<String>, List<JSONObject>> group : itemsByColumns.entrySet()) {
+                    List<String> columns = group.getKey();
+                    String insert = "INSERT INTO " + quote(quote, table) + " (" +
+                        columns.stream().map(c -> quote(quote, c)).collect(Collectors.joining(", ")) + ") VALUES (" +
+                        columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ')';
+                    try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                        for (JSONObject item : group.getValue()) {
+                            for (int i = 0; i < columns.size(); i++) {
+                                setValue(statement, i + 1, item.get(columns.get(i)));
+                            }
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        return items.length();
+    }
+
+
+    /**
+     * deletes the rows with the ids, {@code batchSize} ids per transaction and at most {@value #MAX_IN_LIST_SIZE}
+     * per statement
+     *
+     * @return the number of rows deleted
+     */
+    long deleteItems(String table, List<Long> ids) throws SQLException {
+        long deleted = 0;
+        try (Connection connection = connect()) {
+            String quote = connection.getMetaData().getIdentifierQuoteString();
+            Map<Integer, PreparedStatement> statements = new HashMap<>();
+            try {
+                for (int start = 0; start < ids.size(); start += batchSize) {
+                    List<Long> batch = ids.subList(start, Math.min(start + batchSize, ids.size()));
+                    for (int inListStart = 0; inListStart < batch.size(); inListStart += MAX_IN_LIST_SIZE) {
+                        List<Long> inList =
+                            batch.subList(inListStart, Math.min(inListStart + MAX_IN_LIST_SIZE, batch.size()));
+                        PreparedStatement statement = statements.get(inList.size());
+                        if (statement == null) {
+                            statement = connection.prepareStatement("DELETE FROM " + quote(quote, table) + " WHERE " +
+                                quote(quote, "id") + " IN (" +
+                                inList.stream().map(i -> "?").collect(Collectors.joining(", ")) + ')');
+                            statements.put(inList.size(), statement);
+                        }
+                        for (int i = 0; i < inList.size(); i++) {
+                            statement.setLong(i + 1, inList.get(i));
+                        }
+                        deleted += statement.executeUpdate();
+                    }
+                    connection.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                // the statements of the failed batch, earlier batches are committed
+                connection.rollback();
+                throw e;
+            } finally {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+            }
+        }
+        return deleted;
+    }
+
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(jdbcUrl, user, password);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+
+    private static int commit(Connection connection, int rows) throws SQLException {
+        connection.commit();
+        return rows;
+    }
+
+
+    private static Long maxId(Connection connection, String quote, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MAX(" + quote(quote, "id") +
+            ") FROM " + quote(quote, table)); ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            long maxId = resultSet.getLong(1);
+            return resultSet.wasNull() ? null : maxId;
+        }
+    }
+
+
+    private static void setValue(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            statement.setNull(index, Types.NULL);
+        } else if (value instanceof JSONObject || value instanceof JSONArray) {
+            statement.setString(index, value.toString());
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+
+
+    /**
+     * @param quote the quote of the database, a space if it doesn't support quoting
+     */
+    static String quote(String quote, String identifier) {
+        if (quote == null || quote.isBlank()) {
+            if (!identifier.matches("[A-Za-z0-9_]+")) {
+                throw new IllegalArgumentException("'" + identifier + "' can't be used as sql identifier");
+            }
+            return identifier;
+        }
+        return quote + identifier.replace(quote, quote + quote) + quote;
+    }
+
+}
@@ -0,0 +1,122 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * request bodies written straight from the json tree into utf-8 chunks
+ *
+ * {@code BodyPublishers.ofString(json.toString())} holds the body as a String (two bytes per character) and
+ * then again as a byte array. This writes the tree once into 64 KB chunks that are published one by one, so
+ * a large batch costs its encoded size and nothing more. The chunks can be published again when a request is
+ * retried.
+ */
+final class JsonBodyPublisher {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private JsonBodyPublisher() {
+    }
+
+
+    static BodyPublisher of(JSONArray json) {
+        return of((Object) json);
+    }
+
+
+    static BodyPublisher of(JSONObject json) {
+        return of((Object) json);
+    }
+
+
+    private static BodyPublisher of(Object json) {
+        ChunkOutputStream chunks = new ChunkOutputStream();
+        try (Writer writer = new OutputStreamWriter(chunks, StandardCharsets.UTF_8)) {
+            if (json instanceof JSONArray) {
+                ((JSONArray) json).write(writer);
+            } else {
+                ((JSONObject) json).write(writer);
+            }
+        } catch (IOException e) {
+            // writing into memory doesn't fail
+            throw new UncheckedIOException(e);
+        }
+        return chunks.toBodyPublisher();
+    }
+
+
+    /**
+     * collects what is written in chunks of 64 KB, to be published once it is closed
+     */
+    static class ChunkOutputStream extends OutputStream {
+        private final List<byte[]> chunks = new ArrayList<>();
+        private byte[] current = new byte[CHUNK_SIZE];
+        private int position;
+        private long size;
+
+        @Override
+        public void write(int b) {
+            if (position == current.length) {
+                nextChunk();
+            }
+            current[position++] = (byte) b;
+            size++;
+        }
+
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                if (position == current.length) {
+                    nextChunk();
+                }
+                int copied = Math.min(length, current.length - position);
+                System.arraycopy(bytes, offset, current, position, copied);
+                position += copied;
+                offset += copied;
+                length -= copied;
+                size += copied;
+            }
+        }
+
+
+        @Override
+        public void close() {
+            if (position > 0) {
+                chunks.add(position == current.length ? current : Arrays.copyOf(current, position));
+            }
+            current = null;
+        }
+
+
+        long size() {
+            return size;
+        }
+
+
+        BodyPublisher toBodyPublisher() {
+            return BodyPublishers.fromPublisher(BodyPublishers.ofByteArrays(chunks), size);
+        }
+
+
+        private void nextChunk() {
+            chunks.add(current);
+            current = new byte[CHUNK_SIZE];
+            position = 0;
+        }
+    }
+
+}
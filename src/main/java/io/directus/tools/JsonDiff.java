@@ -0,0 +1,157 @@
+package io.directus.tools;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * structural comparison of two json documents
+ *
+ * Both trees are walked in memory and every difference is reported with its JSON pointer path (RFC 6901,
+ * e.g. {@code /data/fields/title/length}). Objects are compared key by key, arrays index by index and numbers
+ * by value, so {@code 1} and {@code 1.0} are the same. The cost is linear in the size of the documents.
+ */
+public final class JsonDiff {
+
+    public enum Type {
+        ADDED, REMOVED, MODIFIED
+    }
+
+    /**
+     * a single difference, {@code before} is null for added and {@code after} for removed values
+     */
+    public static final class Change {
+        private final String path;
+        private final Type type;
+        private final Object before;
+        private final Object after;
+
+        private Change(String path, Type type, Object before, Object after) {
+            this.path = path;
+            this.type = type;
+            this.before = before;
+            this.after = after;
+        }
+
+
+        public String getPath() {
+            return path;
+        }
+
+
+        public Type getType() {
+            return type;
+        }
+
+
+        public Object getBefore() {
+            return before;
+        }
+
+
+        public Object getAfter() {
+            return after;
+        }
+
+
+        public JSONObject toJson() {
+            JSONObject change = new JSONObject().put("path", path).put("type", type.name().toLowerCase());
+            if (type != Type.ADDED) {
+                change.put("before", before);
+            }
+            if (type != Type.REMOVED) {
+                change.put("after", after);
+            }
+            return change;
+        }
+
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case ADDED:
+                    return "+ " + path + ": " + after;
+                case REMOVED:
+                    return "- " + path + ": " + before;
+                default:
+                    return "~ " + path + ": " + before + " -> " + after;
+            }
+        }
+    }
+
+    private JsonDiff() {
+    }
+
+
+    /**
+     * @param before a JSONObject, JSONArray or simple value
+     * @param after a JSONObject, JSONArray or simple value
+     * @return the differences in document order, empty if both are the same
+     */
+    public static List<Change> diff(Object before, Object after) {
+        List<Change> changes = new ArrayList<>();
+        diff("", before, after, changes);
+        return changes.isEmpty() ? Collections.emptyList() : changes;
+    }
+
+
+    /**
+     * @return the changes as a json array of {@code {"path", "type", "before", "after"}} objects
+     */
+    public static JSONArray toJson(List<Change> changes) {
+        JSONArray result = new JSONArray();
+        changes.forEach(c -> result.put(c.toJson()));
+        return result;
+    }
+
+
+    private static void diff(String path, Object before, Object after, List<Change> changes) {
+        if (before instanceof JSONObject && after instanceof JSONObject) {
+            JSONObject beforeObject = (JSONObject) before;
+            JSONObject afterObject = (JSONObject) after;
+            TreeSet<String> keys = new TreeSet<>(beforeObject.keySet());
+            keys.addAll(afterObject.keySet());
+            for (String key : keys) {
+                String keyPath = path + '/' + key.replace("~", "~0").replace("/", "~1");
+                if (!afterObject.has(key)) {
+                    changes.add(new Change(keyPath, Type.REMOVED, beforeObject.get(key), null));
+                } else if (!beforeObject.has(key)) {
+                    changes.add(new Change(keyPath, Type.ADDED, null, afterObject.get(key)));
+                } else {
+                    diff(keyPath, beforeObject.get(key), afterObject.get(key), changes);
+                }
+            }
+        } else if (before instanceof JSONArray && after instanceof JSONArray) {
+            JSONArray beforeArray = (JSONArray) before;
+            JSONArray afterArray = (JSONArray) after;
+            int common = Math.min(beforeArray.length(), afterArray.length());
+            for (int i = 0; i < common; i++) {
+                diff(path + '/' + i, beforeArray.get(i), afterArray.get(i), changes);
+            }
+            for (int i = common; i < beforeArray.length(); i++) {
+                changes.add(new Change(path + '/' + i, Type.REMOVED, beforeArray.get(i), null));
+            }
+            for (int i = common; i < afterArray.length(); i++) {
+                changes.add(new Change(path + '/' + i, Type.ADDED, null, afterArray.get(i)));
+            }
+        } else if (!isSameValue(before, after)) {
+            changes.add(new Change(path, Type.MODIFIED, before, after));
+        }
+    }
+
+
+    private static boolean isSameValue(Object before, Object after) {
+        if (before instanceof Number && after instanceof Number) {
+            return new BigDecimal(before.toString()).compareTo(new BigDecimal(after.toString())) == 0;
+        }
+        return Objects.equals(before, after);
+    }
+
+}
@@ -0,0 +1,143 @@
+package io.directus.tools;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+
+/**
+ * reads json objects one after the other from either a json array ({@code [{...}, {...}]}) or newline
+ * delimited json (one object per line)
+ *
+ * Only the object currently being read is held in memory, so files of any size can be processed.
+ */
+class JsonItemReader implements Iterator<JSONObject>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final JSONTokener tokener;
+    private final boolean array;
+    private JSONObject next;
+    private boolean finished;
+    private long position;
+
+    JsonItemReader(Reader reader) {
+        this.reader = Objects.requireNonNull(reader, "reader");
+        this.tokener = new JSONTokener(reader);
+        char first = tokener.nextClean();
+        this.array = first == '[';
+        if (!array) {
+            if (first == 0) {
+                finished = true;
+            } else {
+                tokener.back();
+            }
+        }
+    }
+
+
+    /**
+     * opens a json or ndjson file, files ending with {@code .gz} are decompressed while they are read
+     */
+    static JsonItemReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            try {
+                return new JsonItemReader(new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE), StandardCharsets.UTF_8),
+                    BUFFER_SIZE));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        return new JsonItemReader(new BufferedReader(
+            Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+
+    @Override
+    public JSONObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JSONObject item = next;
+        next = null;
+        position++;
+        return item;
+    }
+
+
+    /**
+     * @return the number of items returned so far
+     */
+    long getPosition() {
+        return position;
+    }
+
+
+    private JSONObject readNext() {
+        char c = tokener.nextClean();
+        if (array) {
+            if (position > 0) {
+                // after the first element a separator or the end of the array is expected
+                if (c == ']') {
+                    finished = true;
+                    return null;
+                }
+                if (c != ',') {
+                    throw tokener.syntaxError("Expected ',' or ']' after item " + position);
+                }
+                c = tokener.nextClean();
+            }
+            if (c == ']') {
+                finished = true;
+                return null;
+            }
+        }
+        if (c == 0) {
+            if (array) {
+                throw tokener.syntaxError("Unterminated array after item " + position);
+            }
+            finished = true;
+            return null;
+        }
+        tokener.back();
+        Object value = tokener.nextValue();
+        if (!(value instanceof JSONObject)) {
+            throw (new IllegalStateException("'" + value + "' is not the expected JSONObject type "));
+        }
+        return (JSONObject) value;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
@@ -0,0 +1,130 @@
+package io.directus.tools;
+
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * wraps a body handler to measure when the response headers arrived, when the body was complete and how many
+ * bytes it had, and reports the request to the metrics once it is done. One instance per request, created right
+ * before it is sent.
+ *
+ * For streamed bodies (e.g. {@code BodyHandlers.ofInputStream()}) the request is done when the last byte was
+ * received or the stream was closed before, a 204 response is done with its headers.
+ */
+class MeteredBodyHandler<T> implements BodyHandler<T> {
+
+    private final BodyHandler<T> delegate;
+    private final RequestMetrics metrics;
+    private final String endpoint;
+    private final long bytesSent;
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private volatile int statusCode;
+    private volatile long headersNanos;
+    private volatile long bytesReceived;
+
+    MeteredBodyHandler(BodyHandler<T> delegate, RequestMetrics metrics, String endpoint, long bytesSent) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+        this.bytesSent = bytesSent;
+    }
+
+
+    @Override
+    public BodySubscriber<T> apply(ResponseInfo responseInfo) {
+        headersNanos = System.nanoTime();
+        statusCode = responseInfo.statusCode();
+        if (statusCode == 204) {
+            // no body to wait for, the body handler might not even read it
+            finished();
+        }
+        return new CountingSubscriber(delegate.apply(responseInfo));
+    }
+
+
+    /**
+     * reports the request as failed unless it was reported already
+     */
+    void failed(Throwable error) {
+        if (reported.compareAndSet(false, true)) {
+            metrics.requestFailed(endpoint, System.nanoTime() - startNanos, error);
+        }
+    }
+
+
+    private void finished() {
+        if (reported.compareAndSet(false, true)) {
+            metrics.requestFinished(endpoint, statusCode, headersNanos - startNanos, System.nanoTime() - headersNanos,
+                bytesSent, bytesReceived);
+        }
+    }
+
+
+    private class CountingSubscriber implements BodySubscriber<T> {
+        private final BodySubscriber<T> subscriber;
+
+        CountingSubscriber(BodySubscriber<T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return subscriber.getBody();
+        }
+
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+
+                @Override
+                public void cancel() {
+                    // a stream closed before its end
+                    finished();
+                    subscription.cancel();
+                }
+            });
+        }
+
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            long size = 0;
+            for (ByteBuffer buffer : buffers) {
+                size += buffer.remaining();
+            }
+            // onNext is never called concurrently
+            bytesReceived += size;
+            subscriber.onNext(buffers);
+        }
+
+
+        @Override
+        public void onError(Throwable throwable) {
+            failed(throwable);
+            subscriber.onError(throwable);
+        }
+
+
+        @Override
+        public void onComplete() {
+            finished();
+            subscriber.onComplete();
+        }
+    }
+
+}
@@ -0,0 +1,347 @@
+package io.directus.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * applies an ordered changelog of schema changes with one SDK instance, similar to what liquibase does for
+ * databases
+ *
+ * A changelog is a json file:
+ * <pre>
+ * {
+ *   "changes": [
+ *     {"id": "1-articles", "command": "create_collection", "args": ["schema/articles.json"]},
+ *     {"id": "2-authors", "command": "create_collection", "args": ["schema/authors.json"], "depends_on": []},
+ *     {"id": "3-rename", "command": "rename_field", "args": ["articles", "title", "headline"],
+ *      "depends_on": ["1-articles"]},
+ *     {"id": "4-m2o", "command": "create_m2o", "args": ["articles", "author", "authors", null],
+ *      "depends_on": ["1-articles", "2-authors"]}
+ *   ]
+ * }
+ * </pre>
+ * Commands and arguments are the same as for the CLI, files are resolved relative to the changelog.
+ *
+ * A change without {@code depends_on} depends on the change before it, so a plain list runs in order. Changes
+ * that list their dependencies explicitly (an empty list for none) may run in parallel once those are applied.
+ * Dependencies must refer to changes earlier in the list.
+ *
+ * Applied changes are appended to a log file with a checksum over the change and the content of the files it
+ * uses. A rerun skips changes that are in the log and fails if an applied change was modified since. With an SDK
+ * in a dry run the pending changes are planned but not logged.
+ */
+public class MigrationRunner {
+
+    public static final List<String> COMMANDS = List.of("create_collection", "patch", "add_data", "import_data",
+        "rename_field", "drop_field", "create_m2o", "delete_m2o", "create_m2o_bulk", "delete_m2o_bulk");
+
+    /** number of args per command, the field_one of create_m2o and delete_m2o may be null */
+    private static final Map<String, Integer> ARG_COUNTS = Map.of("create_collection", 1, "patch", 1, "add_data", 2,
+        "import_data", 2, "rename_field", 3, "drop_field", 2, "create_m2o", 4, "delete_m2o", 4, "create_m2o_bulk", 1,
+        "delete_m2o_bulk", 1);
+
+    private final Logger logger = Logger.getLogger(MigrationRunner.class.getName());
+
+    private final DirectusAdministrationSdk sdk;
+    private final int parallelism;
+    private String environmentName;
+
+    /**
+     * @param parallelism maximum number of changes applied at the same time
+     */
+    public MigrationRunner(DirectusAdministrationSdk sdk, int parallelism) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1 but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * @param environmentName if not null import_data changes record their progress in
+     *            {@code <data file>.<environmentName>.checkpoint}, so runners applying the same changelog to several
+     *            environments at the same time don't share checkpoints
+     */
+    public void setEnvironmentName(String environmentName) {
+        this.environmentName = environmentName;
+    }
+
+
+    /**
+     * applies all changes of the changelog that are not in the applied log yet
+     *
+     * @param appliedLog the file keeping track of applied changes, created if it doesn't exist
+     * @return the ids of the changes applied with this run
+     */
+    public List<String> run(File changelogFile, File appliedLog) throws IOException {
+        Objects.requireNonNull(changelogFile, "changelogFile");
+        Objects.requireNonNull(appliedLog, "appliedLog");
+        Path baseDirectory = changelogFile.getAbsoluteFile().toPath().getParent();
+        List<Change> changes = readChangelog(changelogFile, baseDirectory);
+        Map<String, String> applied = readAppliedLog(appliedLog.toPath());
+        for (Change change : changes) {
+            String appliedChecksum = applied.get(change.id);
+            if (appliedChecksum != null && !appliedChecksum.equals(change.checksum)) {
+                throw new IllegalStateException("change '" + change.id + "' was modified after it had been" +
+                    " applied (checksum " + appliedChecksum + " in " + appliedLog + ", now " + change.checksum +
+                    "). Add a new change instead of modifying an applied one.");
+            }
+        }
+
+        List<String> appliedNow = new ArrayList<>();
+        Map<String, CompletableFuture<Void>> results = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (Change change : changes) {
+                CompletableFuture<?>[] dependencies = change.dependsOn.stream().map(results::get)
+                    .toArray(CompletableFuture<?>[]::new);
+                CompletableFuture<Void> result;
+                if (applied.containsKey(change.id)) {
+                    logger.info("skipping change '" + change.id + "', it was applied before");
+                    result = CompletableFuture.allOf(dependencies);
+                } else {
+                    result = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                        apply(change);
+                        if (!sdk.isDryRun()) {
+                            logApplied(appliedLog.toPath(), change);
+                        }
+                        synchronized (appliedNow) {
+                            appliedNow.add(change.id);
+                        }
+                    }, executor);
+                }
+                results.put(change.id, result);
+            }
+            CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .join();
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> failed = new ArrayList<>();
+        Throwable firstFailure = null;
+        for (Map.Entry<String, CompletableFuture<Void>> result : results.entrySet()) {
+            if (result.getValue().isCompletedExceptionally() && !applied.containsKey(result.getKey())) {
+                failed.add(result.getKey());
+                if (firstFailure == null) {
+                    try {
+                        result.getValue().join();
+                    } catch (CompletionException e) {
+                        firstFailure = e.getCause();
+                    }
+                }
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("migration failed, changes not applied: " + failed + ". Applied with" +
+                " this run: " + appliedNow + ". First error: " + firstFailure, firstFailure);
+        }
+        logger.info("migration complete, applied " + appliedNow.size() + " of " + changes.size() + " changes");
+        return appliedNow;
+    }
+
+
+    private void apply(Change change) {
+        logger.info("applying change '" + change.id + "' (" + change.command + ' ' + change.args + ')');
+        List<String> args = change.args;
+        try {
+            switch (change.command) {
+                case "create_collection":
+                    sdk.createCollection(change.file(0));
+                    break;
+                case "patch":
+                    sdk.patch(change.file(0));
+                    break;
+                case "add_data":
+                    sdk.addData(args.get(0), change.file(1));
+                    break;
+                case "import_data":
+                    if (environmentName == null) {
+                        sdk.importData(args.get(0), change.file(1));
+                    } else {
+                        File dataFile = change.file(1);
+                        sdk.importData(args.get(0), dataFile, DirectusAdministrationSdk.DEFAULT_IMPORT_CHUNK_SIZE, 1,
+                            new File(dataFile.getPath() + '.' + environmentName + ".checkpoint"));
+                    }
+                    break;
+                case "rename_field":
+                    sdk.renameField(args.get(0), args.get(1), args.get(2));
+                    break;
+                case "drop_field":
+                    sdk.dropField(args.get(0), args.get(1));
+                    break;
+                case "create_m2o":
+                    sdk.createM2ORelation(args.get(0), args.get(1), args.get(2), args.get(3));
+                    break;
+                case "delete_m2o":
+                    sdk.deleteM2ORelation(args.get(0), args.get(1), args.get(2), args.get(3));
+                    break;
+                case "create_m2o_bulk":
+                    sdk.createM2ORelations(change.file(0));
+                    break;
+                case "delete_m2o_bulk":
+                    sdk.deleteM2ORelations(change.file(0));
+                    break;
+                default:
+                    throw new IllegalStateException("unknown command '" + change.command + '\'');
+            }
+        } catch (IOException e) {
+            throw new CompletionException("change '" + change.id + "' failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException("change '" + change.id + "' was interrupted", e);
+        }
+        logger.info("applied change '" + change.id + '\'');
+    }
+
+
+    private synchronized void logApplied(Path appliedLog, Change change) {
+        JSONObject entry = new JSONObject()
+            .put("id", change.id)
+            .put("checksum", change.checksum)
+            .put("applied_at", Instant.now().toString());
+        try (BufferedWriter writer = Files.newBufferedWriter(appliedLog, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(entry.toString());
+            writer.newLine();
+        } catch (IOException e) {
+            throw new CompletionException("change '" + change.id + "' was applied but writing it to " + appliedLog +
+                " failed", e);
+        }
+    }
+
+
+    private static Map<String, String> readAppliedLog(Path appliedLog) throws IOException {
+        Map<String, String> applied = new HashMap<>();
+        if (Files.exists(appliedLog)) {
+            for (String line : Files.readAllLines(appliedLog, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    JSONObject entry = new JSONObject(line);
+                    applied.put(entry.getString("id"), entry.getString("checksum"));
+                }
+            }
+        }
+        return applied;
+    }
+
+
+    private static List<Change> readChangelog(File changelogFile, Path baseDirectory) throws IOException {
+        JSONArray changeList = new JSONObject(Files.readString(changelogFile.toPath(), StandardCharsets.UTF_8))
+            .getJSONArray("changes");
+        List<Change> changes = new ArrayList<>();
+        Map<String, Change> byId = new HashMap<>();
+        for (int i = 0; i < changeList.length(); i++) {
+            JSONObject changeDef = changeList.getJSONObject(i);
+            Change change = new Change(changeDef, baseDirectory);
+            if (!COMMANDS.contains(change.command)) {
+                throw new IllegalStateException("change '" + change.id + "' has unknown command '" +
+                    change.command + "', supported are " + COMMANDS);
+            }
+            if (change.args.size() != ARG_COUNTS.get(change.command)) {
+                throw new IllegalStateException("change '" + change.id + "' has " + change.args.size() +
+                    " args but " + change.command + " takes " + ARG_COUNTS.get(change.command) + ": " + change.args);
+            }
+            if (byId.put(change.id, change) != null) {
+                throw new IllegalStateException("change id '" + change.id + "' is used more than once in " +
+                    changelogFile);
+            }
+            if (!changeDef.has("depends_on")) {
+                if (!changes.isEmpty()) {
+                    change.dependsOn.add(changes.get(changes.size() - 1).id);
+                }
+            } else {
+                for (Object dependency : changeDef.getJSONArray("depends_on")) {
+                    if (!byId.containsKey(String.valueOf(dependency)) || dependency.equals(change.id)) {
+                        throw new IllegalStateException("change '" + change.id + "' depends on '" + dependency +
+                            "' which is not an earlier change in " + changelogFile);
+                    }
+                    change.dependsOn.add(String.valueOf(dependency));
+                }
+            }
+            change.checksum = change.checksum();
+            changes.add(change);
+        }
+        return changes;
+    }
+
+
+    private static class Change {
+        private final String id;
+        private final String command;
+        private final List<String> args = new ArrayList<>();
+        private final List<String> dependsOn = new ArrayList<>();
+        private final Path baseDirectory;
+        private String checksum;
+
+        Change(JSONObject changeDef, Path baseDirectory) {
+            this.id = changeDef.getString("id");
+            this.command = changeDef.getString("command").toLowerCase();
+            this.baseDirectory = baseDirectory;
+            JSONArray argList = changeDef.optJSONArray("args");
+            if (argList != null) {
+                for (int i = 0; i < argList.length(); i++) {
+                    args.add(argList.isNull(i) ? null : argList.get(i).toString());
+                }
+            }
+        }
+
+
+        File file(int argIndex) {
+            return baseDirectory.resolve(args.get(argIndex)).toFile();
+        }
+
+
+        /**
+         * sha-256 over the command, its arguments and the content of all arguments that are existing files
+         */
+        String checksum() throws IOException {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(command.getBytes(StandardCharsets.UTF_8));
+                for (String arg : args) {
+                    digest.update((byte) 0);
+                    digest.update(String.valueOf(arg).getBytes(StandardCharsets.UTF_8));
+                    Path argFile = arg == null ? null : baseDirectory.resolve(arg);
+                    if (argFile != null && Files.isRegularFile(argFile)) {
+                        try (InputStream in = Files.newInputStream(argFile)) {
+                            byte[] buffer = new byte[64 * 1024];
+                            for (int read; (read = in.read(buffer)) > 0;) {
+                                digest.update(buffer, 0, read);
+                            }
+                        }
+                    }
+                }
+                return ProjectExporter.toHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+package io.directus.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+
+/**
+ * runs the same task against several environments at the same time, e.g. to promote a schema change to all
+ * staging environments at once
+ *
+ * Every environment gets its own SDK and its own output stream. The output of an environment is printed as one
+ * block once it is done, so the output of environments running at the same time isn't interleaved.
+ */
+public class MultiEnvironmentRunner {
+
+    /**
+     * what happens to the other environments when one fails
+     */
+    public enum FailurePolicy {
+        /**
+         * environments that haven't started yet are skipped, running ones are interrupted
+         */
+        FAIL_FAST,
+        /**
+         * all environments run to their end
+         */
+        CONTINUE
+    }
+
+    public enum Status {
+        SUCCEEDED, FAILED, CANCELLED
+    }
+
+    /**
+     * the work done for one environment
+     */
+    @FunctionalInterface
+    public interface EnvironmentTask {
+        /**
+         * @param sdk a new SDK for the environment, closed when the task is done
+         * @param out where the task writes its output
+         */
+        void run(DirectusEnvironment environment, DirectusAdministrationSdk sdk, PrintStream out) throws Exception;
+    }
+
+    private final Logger logger = Logger.getLogger(MultiEnvironmentRunner.class.getName());
+
+    private final List<DirectusEnvironment> environments;
+    private final FailurePolicy failurePolicy;
+    private final int parallelism;
+
+    /**
+     * @param parallelism maximum number of environments the task runs against at the same time
+     */
+    public MultiEnvironmentRunner(List<DirectusEnvironment> environments, FailurePolicy failurePolicy,
+        int parallelism) {
+        this.environments = List.copyOf(Objects.requireNonNull(environments, "environments"));
+        this.failurePolicy = Objects.requireNonNull(failurePolicy, "failurePolicy");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1 but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * runs the task against all environments and prints the output of each environment into {@code out} when it
+     * is done
+     *
+     * @return the results in the order of the environments
+     */
+    public List<Result> run(EnvironmentTask task, PrintStream out) throws InterruptedException {
+        Objects.requireNonNull(task, "task");
+        Objects.requireNonNull(out, "out");
+        Map<DirectusEnvironment, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+        Map<Future<Result>, DirectusEnvironment> futures = new LinkedHashMap<>();
+        Map<DirectusEnvironment, Result> results = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+        long start = System.nanoTime();
+        try {
+            for (DirectusEnvironment environment : environments) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                outputs.put(environment, output);
+                futures.put(completionService.submit(() -> runTask(task, environment, output)), environment);
+            }
+
+            boolean cancelling = false;
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Result> future = completionService.take();
+                DirectusEnvironment environment = futures.get(future);
+                Result result;
+                try {
+                    result = future.get();
+                } catch (CancellationException e) {
+                    result = new Result(environment.getName(), Status.CANCELLED,
+                        Duration.ofNanos(System.nanoTime() - start), null, outputOf(outputs.get(environment)));
+                } catch (ExecutionException e) {
+                    // runTask catches everything, this is an Error
+                    result = new Result(environment.getName(), Status.FAILED,
+                        Duration.ofNanos(System.nanoTime() - start), e.getCause(),
+                        outputOf(outputs.get(environment)));
+                }
+                results.put(environment, result);
+                print(result, out);
+                if (result.getStatus() == Status.FAILED && failurePolicy == FailurePolicy.FAIL_FAST && !cancelling) {
+                    cancelling = true;
+                    logger.warning("environment '" + environment.getName() + "' failed, cancelling the others");
+                    futures.keySet().forEach(f -> f.cancel(true));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            // interrupted tasks still close their SDKs
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        List<Result> orderedResults = new ArrayList<>();
+        environments.forEach(e -> orderedResults.add(results.get(e)));
+        return orderedResults;
+    }
+
+
+    /**
+     * @return a table with the status and duration of every environment
+     */
+    public static String getSummary(List<Result> results) {
+        int nameWidth = "environment".length();
+        for (Result result : results) {
+            nameWidth = Math.max(nameWidth, result.getEnvironmentName().length());
+        }
+        String format = "%-" + nameWidth + "s %-9s %10s  %s%n";
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(format, "environment", "status", "ms", "error"));
+        int succeeded = 0;
+        for (Result result : results) {
+            Throwable error = result.getError();
+            summary.append(String.format(format, result.getEnvironmentName(),
+                result.getStatus().name().toLowerCase(), result.getDuration().toMillis(),
+                error == null ? "" : error.getClass().getSimpleName() +
+                    (error.getMessage() == null ? "" : ": " + error.getMessage())));
+            succeeded += result.getStatus() == Status.SUCCEEDED ? 1 : 0;
+        }
+        summary.append(succeeded).append(" of ").append(results.size()).append(" environments succeeded")
+            .append(System.lineSeparator());
+        return summary.toString();
+    }
+
+
+    private Result runTask(EnvironmentTask task, DirectusEnvironment environment, ByteArrayOutputStream output) {
+        long start = System.nanoTime();
+        PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+        Throwable error = null;
+        try (DirectusAdministrationSdk sdk = environment.createSdk()) {
+            task.run(environment, sdk, out);
+        } catch (Exception e) {
+            error = e;
+        }
+        out.flush();
+        Status status = error == null ? Status.SUCCEEDED
+                        : error instanceof InterruptedException ? Status.CANCELLED : Status.FAILED;
+        return new Result(environment.getName(), status, Duration.ofNanos(System.nanoTime() - start), error,
+            outputOf(output));
+    }
+
+
+    private static String outputOf(ByteArrayOutputStream output) {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+
+    private static void print(Result result, PrintStream out) {
+        out.println("=== " + result.getEnvironmentName() + ": " + result.getStatus().name().toLowerCase() + " after " +
+            result.getDuration().toMillis() + " ms ===");
+        out.print(result.getOutput());
+        if (result.getError() != null) {
+            out.println(result.getError());
+        }
+        out.println();
+    }
+
+
+    /**
+     * outcome of the task for one environment
+     */
+    public static class Result {
+        private final String environmentName;
+        private final Status status;
+        private final Duration duration;
+        private final Throwable error;
+        private final String output;
+
+        Result(String environmentName, Status status, Duration duration, Throwable error, String output) {
+            this.environmentName = environmentName;
+            this.status = status;
+            this.duration = duration;
+            this.error = error;
+            this.output = output;
+        }
+
+
+        public String getEnvironmentName() {
+            return environmentName;
+        }
+
+
+        public Status getStatus() {
+            return status;
+        }
+
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+
+        /**
+         * @return why the task failed, null if it succeeded
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+
+        /**
+         * @return what the task printed
+         */
+        public String getOutput() {
+            return output;
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+package io.directus.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * writes the schema and the items of a project's collections into a directory
+ *
+ * The directory gets
+ * <ul>
+ * <li>{@value #SCHEMA_FILE}: the collections, fields and relations of the exported collections</li>
+ * <li>{@code <collection>.ndjson.gz}: the items of a collection ordered by id, one json object per line</li>
+ * <li>{@value #MANIFEST_FILE}: item count, size and sha-256 of every file, written last, so an export without a
+ * manifest is incomplete. The manifest of an earlier export into the directory is deleted first.</li>
+ * </ul>
+ * Collections are exported concurrently. Each one is read page by page and compressed while it is written, so
+ * memory use depends on the page size and the parallelism but not on the size of the project.
+ */
+class ProjectExporter {
+
+    static final String SCHEMA_FILE = "schema.json";
+    static final String MANIFEST_FILE = "manifest.json";
+    static final String ITEMS_FILE_SUFFIX = ".ndjson.gz";
+    static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = Logger.getLogger(ProjectExporter.class.getName());
+
+    private final DirectusAdministrationSdk sdk;
+    private final String source;
+    private final int parallelism;
+
+    /**
+     * @param source the api and project exported, recorded in the manifest
+     */
+    ProjectExporter(DirectusAdministrationSdk sdk, String source, int parallelism) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        this.source = Objects.requireNonNull(source, "source");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1 but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * @param collections the collections to export, empty for all collections except the directus system
+     *        collections
+     * @return the manifest
+     */
+    JSONObject export(Path directory, List<String> collections) throws IOException, InterruptedException {
+        Objects.requireNonNull(directory, "directory");
+        Objects.requireNonNull(collections, "collections");
+        Files.createDirectories(directory);
+        // the manifest of an earlier export would vouch for files this one replaces, until its own is written
+        Files.deleteIfExists(directory.resolve(MANIFEST_FILE));
+        long start = System.nanoTime();
+
+        JSONObject schema = readSchema(collections);
+        List<String> exportedCollections = new ArrayList<>();
+        schema.getJSONArray("collections")
+            .forEach(c -> exportedCollections.add(((JSONObject) c).getString("collection")));
+        JSONObject schemaEntry = writeSchema(directory.resolve(SCHEMA_FILE), schema);
+
+        Map<String, CompletableFuture<JSONObject>> results = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (String collection : exportedCollections) {
+                results.put(collection, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return exportItems(directory, collection);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException("exporting items of '" + collection + "' was interrupted", e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .join();
+        } finally {
+            executor.shutdown();
+        }
+
+        JSONArray collectionEntries = new JSONArray();
+        List<String> failed = new ArrayList<>();
+        Throwable firstFailure = null;
+        long itemCount = 0;
+        for (Map.Entry<String, CompletableFuture<JSONObject>> result : results.entrySet()) {
+            try {
+                JSONObject entry = result.getValue().join();
+                collectionEntries.put(entry);
+                itemCount += entry.getLong("items");
+            } catch (CompletionException e) {
+                failed.add(result.getKey());
+                firstFailure = firstFailure == null ? e.getCause() : firstFailure;
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("export into " + directory + " failed for collections " + failed +
+                ", the export is incomplete. First error: " + firstFailure, firstFailure);
+        }
+
+        JSONObject manifest = new JSONObject()
+            .put("format", FORMAT_VERSION)
+            .put("source", source)
+            .put("exported_at", Instant.now().toString())
+            .put("schema", schemaEntry)
+            .put("collections", collectionEntries);
+        Path temp = Files.createTempFile(directory, MANIFEST_FILE, ".tmp");
+        Files.writeString(temp, manifest.toString(2), StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+
+        logger.info("exported " + itemCount + " items of " + exportedCollections.size() + " collections into " +
+            directory + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return manifest;
+    }
+
+
+    /**
+     * @return collections, fields and relations of the collections, relations if either side is exported
+     */
+    private JSONObject readSchema(List<String> collections) throws IOException, InterruptedException {
+        Set<String> selected = new HashSet<>(collections);
+        JSONArray collectionList = new JSONArray();
+        Set<String> found = new HashSet<>();
+        for (Object object : sdk.getDirectusData("/collections?limit=-1").getJSONArray("data")) {
+            JSONObject collectionData = (JSONObject) object;
+            String collection = collectionData.getString("collection");
+            if (selected.isEmpty() ? !collection.startsWith("directus_") : selected.contains(collection)) {
+                // the fields are exported on their own
+                collectionData.remove("fields");
+                collectionList.put(collectionData);
+                found.add(collection);
+            }
+        }
+        if (!found.containsAll(selected)) {
+            Set<String> missing = new HashSet<>(selected);
+            missing.removeAll(found);
+            throw new IllegalStateException("collections " + missing + " don't exist");
+        }
+
+        JSONArray fieldList = new JSONArray();
+        for (Object object : sdk.getDirectusData("/fields?limit=-1").getJSONArray("data")) {
+            if (found.contains(((JSONObject) object).getString("collection"))) {
+                fieldList.put(object);
+            }
+        }
+        JSONArray relationList = new JSONArray();
+        for (Object object : sdk.getDirectusData("/relations?limit=-1").getJSONArray("data")) {
+            JSONObject relation = (JSONObject) object;
+            if (found.contains(relation.optString("collection_many")) ||
+                found.contains(relation.optString("collection_one"))) {
+                relationList.put(relation);
+            }
+        }
+        return new JSONObject()
+            .put("collections", collectionList)
+            .put("fields", fieldList)
+            .put("relations", relationList);
+    }
+
+
+    private JSONObject writeSchema(Path file, JSONObject schema) throws IOException {
+        MessageDigest digest = newDigest();
+        try (Writer writer = newWriter(new DigestOutputStream(Channels.newOutputStream(openChannel(file)), digest))) {
+            writer.write(schema.toString(2));
+        }
+        return new JSONObject()
+            .put("file", file.getFileName().toString())
+            .put("collections", schema.getJSONArray("collections").length())
+            .put("fields", schema.getJSONArray("fields").length())
+            .put("relations", schema.getJSONArray("relations").length())
+            .put("bytes", Files.size(file))
+            .put("sha256", toHex(digest.digest()));
+    }
+
+
+    /**
+     * streams the items of a collection into a gzip'd ndjson file, the checksum is over the compressed file. The
+     * number of items written is compared with the number the server counts.
+     */
+    private JSONObject exportItems(Path directory, String collection) throws IOException, InterruptedException {
+        Path file = directory.resolve(collection + ITEMS_FILE_SUFFIX);
+        logger.info("exporting items of collection '" + collection + "' to " + file);
+        long start = System.nanoTime();
+        MessageDigest digest = newDigest();
+        long count = 0;
+        try (Writer writer = newWriter(new GZIPOutputStream(new DigestOutputStream(
+            Channels.newOutputStream(openChannel(file)), digest), BUFFER_SIZE));
+            Stream<JSONObject> items = sdk.streamItems(collection)) {
+            for (Iterator<JSONObject> iterator = items.iterator(); iterator.hasNext();) {
+                iterator.next().write(writer);
+                writer.write('\n');
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Long serverCount = sdk.countItems(collection, "");
+        if (serverCount == null) {
+            logger.warning("couldn't count the items of collection '" + collection + "', so it isn't checked that" +
+                " all " + count + " exported items were read");
+        } else if (serverCount != count) {
+            throw new IllegalStateException("exported " + count + " items of collection '" + collection +
+                "' but it has " + serverCount + ", items were added or removed while exporting or pages were" +
+                " read incompletely. Export again.");
+        }
+        long items = count;
+        logger.info(() -> "exported " + items + " items of collection '" + collection + "' in " +
+            (System.nanoTime() - start) / 1_000_000 + "ms");
+        return new JSONObject()
+            .put("collection", collection)
+            .put("file", file.getFileName().toString())
+            .put("items", count)
+            .put("bytes", Files.size(file))
+            .put("sha256", toHex(digest.digest()));
+    }
+
+
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE);
+    }
+
+
+    private static Writer newWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+}
@@ -0,0 +1,343 @@
+package io.directus.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * loads an export of {@link ProjectExporter} into a project that doesn't have its collections yet
+ *
+ * The collections are created with their fields first, then the relations, then the items are imported in
+ * chunks, {@code parallelism} collections at a time. The items of a collection are imported after the items of
+ * the collections its many to one relations point to (unless they point at each other). Every file is checked
+ * against the sha-256 of the manifest before it is used and the number of items of every restored collection is
+ * compared with the manifest afterwards.
+ *
+ * Progress is kept in a journal ({@code restore.<target>.journal}) in the export directory, one per target
+ * project:
+ * <pre>
+ * collection articles
+ * relations
+ * items articles 50000
+ * </pre>
+ * A rerun skips what the journal lists and imports the rest, collections that were imported partially continue
+ * after the chunks in their import checkpoint. Relations the target has already are not created again.
+ */
+class ProjectRestorer {
+
+    private static final String COLLECTION = "collection";
+    private static final String RELATIONS = "relations";
+    private static final String ITEMS = "items";
+
+    private final Logger logger = Logger.getLogger(ProjectRestorer.class.getName());
+
+    private final DirectusAdministrationSdk sdk;
+    private final String target;
+    private final int chunkSize;
+    private final int parallelism;
+
+    private Path journalFile;
+    private final Set<String> journal = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param target the api and project restored into, e.g. {@code http://localhost:7000/_}
+     */
+    ProjectRestorer(DirectusAdministrationSdk sdk, String target, int chunkSize, int parallelism) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        this.target = Objects.requireNonNull(target, "target");
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1 but was " + chunkSize);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1 but was " + parallelism);
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * @return the number of items imported by this run
+     */
+    long restore(Path directory) throws IOException, InterruptedException {
+        Objects.requireNonNull(directory, "directory");
+        Path manifestFile = directory.resolve(ProjectExporter.MANIFEST_FILE);
+        if (!Files.exists(manifestFile)) {
+            throw new IllegalStateException("no " + ProjectExporter.MANIFEST_FILE + " in " + directory +
+                ", the export is incomplete");
+        }
+        JSONObject manifest = new JSONObject(Files.readString(manifestFile, StandardCharsets.UTF_8));
+        if (manifest.optInt("format") != ProjectExporter.FORMAT_VERSION) {
+            throw new IllegalStateException("unsupported export format " + manifest.opt("format") + " in " +
+                manifestFile);
+        }
+        long start = System.nanoTime();
+        openJournal(directory);
+
+        JSONObject schemaEntry = manifest.getJSONObject("schema");
+        JSONObject schema = new JSONObject(Files.readString(verifiedFile(directory, schemaEntry),
+            StandardCharsets.UTF_8));
+        createCollections(schema);
+        if (!journal.contains(RELATIONS)) {
+            createRelations(schema.getJSONArray("relations"));
+            writeJournal(RELATIONS);
+        }
+
+        long imported = importItems(directory, manifest.getJSONArray("collections"),
+            schema.getJSONArray("relations"));
+        logger.info("restored " + manifest.getJSONArray("collections").length() + " collections exported from " +
+            manifest.optString("source") + " into " + target + ", imported " + imported + " items in " +
+            (System.nanoTime() - start) / 1_000_000 + "ms");
+        return imported;
+    }
+
+
+    private void createCollections(JSONObject schema) throws IOException, InterruptedException {
+        Map<String, JSONArray> fieldsByCollection = new HashMap<>();
+        for (Object object : schema.getJSONArray("fields")) {
+            JSONObject field = new JSONObject(object.toString());
+            // ids are assigned by the target, groups refer to ids of the source
+            field.remove("id");
+            field.remove("group");
+            DirectusAdministrationSdk.removeProblematicFieldDefinitionDefaults(field);
+            fieldsByCollection.computeIfAbsent(field.getString("collection"), c -> new JSONArray()).put(field);
+        }
+        Set<String> existing = new HashSet<>();
+        if (!sdk.isDryRun()) {
+            sdk.getDirectusData("/collections?fields=collection&limit=-1").getJSONArray("data")
+                .forEach(c -> existing.add(((JSONObject) c).getString("collection")));
+        }
+        for (Object object : schema.getJSONArray("collections")) {
+            JSONObject collectionData = new JSONObject(object.toString());
+            String collection = collectionData.getString("collection");
+            if (journal.contains(COLLECTION + ' ' + collection)) {
+                continue;
+            }
+            if (existing.contains(collection)) {
+                throw new IllegalStateException("collection '" + collection + "' exists in " + target +
+                    " already, restore into a project without the exported collections");
+            }
+            collectionData.put("fields", fieldsByCollection.getOrDefault(collection, new JSONArray()));
+            sdk.createCollection(collectionData);
+            writeJournal(COLLECTION + ' ' + collection);
+        }
+    }
+
+
+    /**
+     * creates the relations the target doesn't have yet, a restore interrupted while creating them created only
+     * the first batches
+     */
+    private void createRelations(JSONArray exportedRelations) throws IOException, InterruptedException {
+        Set<String> existing = new HashSet<>();
+        if (!sdk.isDryRun()) {
+            sdk.getDirectusData("/relations?fields=collection_many,field_many,collection_one,field_one&limit=-1")
+                .getJSONArray("data")
+                .forEach(r -> existing.add(relationKey((JSONObject) r)));
+        }
+        JSONArray relations = new JSONArray();
+        for (Object object : exportedRelations) {
+            JSONObject relation = new JSONObject(object.toString());
+            relation.remove("id");
+            if (existing.contains(relationKey(relation))) {
+                logger.info("skipping relation " + relationKey(relation) + ", it exists in " + target + " already");
+            } else {
+                relations.put(relation);
+            }
+        }
+        if (!relations.isEmpty()) {
+            sdk.createM2ORelations(relations);
+        }
+    }
+
+
+    private static String relationKey(JSONObject relation) {
+        return relation.optString("collection_many") + '.' + relation.optString("field_many") + " -> " +
+            relation.optString("collection_one") + '.' + relation.optString("field_one");
+    }
+
+
+    private long importItems(Path directory, JSONArray collectionEntries, JSONArray relations) {
+        Map<String, JSONObject> entries = new LinkedHashMap<>();
+        collectionEntries.forEach(c -> entries.put(((JSONObject) c).getString("collection"), (JSONObject) c));
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        for (Object object : relations) {
+            JSONObject relation = (JSONObject) object;
+            String many = relation.optString("collection_many");
+            String one = relation.optString("collection_one");
+            if (entries.containsKey(many) && entries.containsKey(one) && !many.equals(one)) {
+                dependencies.computeIfAbsent(many, c -> new LinkedHashSet<>()).add(one);
+            }
+        }
+
+        Map<String, CompletableFuture<Long>> results = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (String collection : inDependencyOrder(entries.keySet(), dependencies)) {
+                // dependencies in a cycle aren't scheduled yet and are ignored
+                CompletableFuture<?>[] before = dependencies.getOrDefault(collection, Set.of()).stream()
+                    .map(results::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture<?>[]::new);
+                results.put(collection, CompletableFuture.allOf(before).thenApplyAsync(v -> {
+                    try {
+                        return importCollection(directory, entries.get(collection));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException("restoring items of '" + collection + "' was interrupted", e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .join();
+        } finally {
+            executor.shutdown();
+        }
+
+        long imported = 0;
+        List<String> failed = new ArrayList<>();
+        Throwable firstFailure = null;
+        for (Map.Entry<String, CompletableFuture<Long>> result : results.entrySet()) {
+            try {
+                imported += result.getValue().join();
+            } catch (CompletionException e) {
+                failed.add(result.getKey());
+                firstFailure = firstFailure == null ? e.getCause() : firstFailure;
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("restoring items failed for collections " + failed + " (collections" +
+                " depending on a failed one are not imported). Rerun the restore to continue. First error: " +
+                firstFailure, firstFailure);
+        }
+        return imported;
+    }
+
+
+    private long importCollection(Path directory, JSONObject entry) throws IOException, InterruptedException {
+        String collection = entry.getString("collection");
+        long expectedItems = entry.getLong("items");
+        if (journal.contains(ITEMS + ' ' + collection + ' ' + expectedItems)) {
+            logger.info("skipping items of '" + collection + "', they were restored before");
+            return 0;
+        }
+        Path dataFile = verifiedFile(directory, entry);
+        Path checkpointFile = directory.resolve(fileNamePrefix() + '.' + collection + ".checkpoint");
+        long imported = sdk.importData(collection, dataFile.toFile(), chunkSize, 1, checkpointFile.toFile());
+        if (sdk.isDryRun()) {
+            return imported;
+        }
+
+        Long count = sdk.countItems(collection, "");
+        if (count == null || count != expectedItems) {
+            throw new IllegalStateException("collection '" + collection + "' has " + count + " items after the" +
+                " restore but " + expectedItems + " were exported");
+        }
+        writeJournal(ITEMS + ' ' + collection + ' ' + expectedItems);
+        return imported;
+    }
+
+
+    /**
+     * @return the collections, each after the ones it depends on as far as there are no cycles
+     */
+    private static List<String> inDependencyOrder(Set<String> collections, Map<String, Set<String>> dependencies) {
+        List<String> ordered = new ArrayList<>();
+        Set<String> remaining = new LinkedHashSet<>(collections);
+        while (!remaining.isEmpty()) {
+            String next = remaining.stream()
+                .filter(c -> dependencies.getOrDefault(c, Set.of()).stream().noneMatch(remaining::contains))
+                .findFirst()
+                // a cycle, continue with the first one left
+                .orElse(remaining.iterator().next());
+            ordered.add(next);
+            remaining.remove(next);
+        }
+        return ordered;
+    }
+
+
+    /**
+     * @return the file of a manifest entry, after checking it has the size and sha-256 of the manifest
+     */
+    private static Path verifiedFile(Path directory, JSONObject entry) throws IOException {
+        Path file = directory.resolve(entry.getString("file"));
+        if (Files.size(file) != entry.getLong("bytes")) {
+            throw new IllegalStateException(file + " has " + Files.size(file) + " bytes but " +
+                entry.getLong("bytes") + " in the manifest, it was changed or damaged after the export");
+        }
+        MessageDigest digest = ProjectExporter.newDigest();
+        try (InputStream in = Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = in.read(buffer)) > 0;) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        if (!ProjectExporter.toHex(digest.digest()).equals(entry.getString("sha256"))) {
+            throw new IllegalStateException(file + " doesn't match the checksum of the manifest, it was changed" +
+                " or damaged after the export");
+        }
+        return file;
+    }
+
+
+    private void openJournal(Path directory) throws IOException {
+        journalFile = directory.resolve(fileNamePrefix() + ".journal");
+        if (Files.exists(journalFile)) {
+            journal.addAll(Files.readAllLines(journalFile, StandardCharsets.UTF_8));
+            logger.info("continuing the restore according to " + journalFile);
+        }
+    }
+
+
+    /**
+     * @return the start of the names of the journal and checkpoint files of the target
+     */
+    private String fileNamePrefix() {
+        return "restore." + target.replaceAll("[^A-Za-z0-9]+", "_");
+    }
+
+
+    private synchronized void writeJournal(String line) throws IOException {
+        if (sdk.isDryRun()) {
+            return;
+        }
+        journal.add(line);
+        try (BufferedWriter writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package io.directus.tools;
+
+/**
+ * client side token bucket limiting the rate of requests, so parallel copies and imports don't overload the
+ * server's workers
+ *
+ * The bucket holds up to {@code burst} tokens and refills at {@code requestsPerSecond}. Callers reserve a token
+ * and wait for the returned time before sending, tokens are handed out in the order of the reservations.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    // the time at which the bucket would be full again if no more tokens were taken
+    private long theoreticalArrivalNanos;
+
+    /**
+     * @param requestsPerSecond sustained rate
+     * @param burst number of requests that may be sent at once after an idle period
+     */
+    public RateLimiter(double requestsPerSecond, int burst) {
+        if (!(requestsPerSecond > 0)) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive but was " + requestsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1 but was " + burst);
+        }
+        this.intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.theoreticalArrivalNanos = System.nanoTime();
+    }
+
+
+    /**
+     * takes a token
+     *
+     * @return nanoseconds to wait before the request may be sent, 0 if it may be sent right away
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        long arrival = Math.max(theoreticalArrivalNanos, now);
+        theoreticalArrivalNanos = arrival + intervalNanos;
+        return Math.max(0, arrival - toleranceNanos - now);
+    }
+
+}
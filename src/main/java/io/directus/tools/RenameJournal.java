@@ -0,0 +1,175 @@
+package io.directus.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+
+/**
+ * local journal of a field rename, so an interrupted rename can be finished without copying everything again
+ *
+ * Each step appends a line:
+ * <pre>
+ * field_created
+ * copied_until 1200
+ * copied_until 2400
+ * copy_complete
+ * </pre>
+ * {@code copied_until} is only written once every row with a smaller or equal id has been copied. With
+ * concurrent updates batches finish out of order, so the journal tracks which batches are done and only moves
+ * the mark forward over an unbroken sequence of finished batches.
+ */
+class RenameJournal {
+
+    private static final String FIELD_CREATED = "field_created";
+    private static final String COPIED_UNTIL = "copied_until";
+    private static final String COPY_COMPLETE = "copy_complete";
+
+    private final Logger logger = Logger.getLogger(RenameJournal.class.getName());
+
+    private final Path file;
+    private boolean fieldCreated;
+    private boolean copyComplete;
+    private Long copiedUntil;
+
+    // batches of the current run: sequence number -> last id of the batch
+    private final Map<Long, Long> batchLastIds = new HashMap<>();
+    private final TreeSet<Long> finishedBatches = new TreeSet<>();
+    private long nextBatch;
+    private long nextExpectedBatch;
+    private boolean brokenSequence;
+
+    private RenameJournal(Path file) {
+        this.file = file;
+    }
+
+
+    static RenameJournal open(File directory, String server, String projectName, String collection,
+        String oldFieldName, String newFieldName) throws IOException {
+        String name = "rename." + server.replaceAll("[^A-Za-z0-9]+", "_") + '.' + projectName + '.' + collection +
+            '.' + oldFieldName + '.' + newFieldName + ".journal";
+        RenameJournal journal = new RenameJournal(directory.toPath().resolve(name));
+        if (Files.exists(journal.file)) {
+            for (String line : Files.readAllLines(journal.file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(" ");
+                switch (parts[0]) {
+                    case FIELD_CREATED:
+                        journal.fieldCreated = true;
+                        break;
+                    case COPIED_UNTIL:
+                        journal.copiedUntil = Long.parseLong(parts[1]);
+                        break;
+                    case COPY_COMPLETE:
+                        journal.copyComplete = true;
+                        break;
+                    default:
+                        // ignore unknown lines, e.g. from a newer version
+                }
+            }
+        }
+        return journal;
+    }
+
+
+    boolean exists() {
+        return Files.exists(file);
+    }
+
+
+    Path getFile() {
+        return file;
+    }
+
+
+    boolean isFieldCreated() {
+        return fieldCreated;
+    }
+
+
+    boolean isCopyComplete() {
+        return copyComplete;
+    }
+
+
+    /**
+     * @return the id up to which all rows have been copied, null if nothing is known to be copied
+     */
+    Long getCopiedUntil() {
+        return copiedUntil;
+    }
+
+
+    void fieldCreated() throws IOException {
+        fieldCreated = true;
+        append(FIELD_CREATED);
+    }
+
+
+    void copyComplete() throws IOException {
+        copyComplete = true;
+        append(COPY_COMPLETE);
+    }
+
+
+    /**
+     * registers a batch that is about to be sent
+     *
+     * @param lastId the highest id in the batch
+     * @return the batch's sequence number to pass to {@link #batchFinished(long, boolean)}
+     */
+    synchronized long startBatch(long lastId) {
+        long batch = nextBatch++;
+        batchLastIds.put(batch, lastId);
+        return batch;
+    }
+
+
+    /**
+     * moves the copied mark forward if this batch closes a gap; a failed batch stops the mark for this run
+     */
+    synchronized void batchFinished(long batch, boolean success) {
+        if (!success) {
+            brokenSequence = true;
+        }
+        if (brokenSequence) {
+            return;
+        }
+        finishedBatches.add(batch);
+        Long lastId = null;
+        while (finishedBatches.remove(nextExpectedBatch)) {
+            lastId = batchLastIds.remove(nextExpectedBatch++);
+        }
+        if (lastId != null) {
+            copiedUntil = lastId;
+            try {
+                append(COPIED_UNTIL + ' ' + lastId);
+            } catch (IOException e) {
+                // losing a mark only means copying a few rows again when resuming
+                logger.warning("writing to rename journal " + file + " failed: " + e);
+            }
+        }
+    }
+
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+
+    private synchronized void append(String line) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package io.directus.tools;
+
+/**
+ * receives a measurement for every request the SDK sends
+ *
+ * The SDK uses {@link SimpleRequestMetrics} unless another implementation is set, e.g. an adapter to a metrics
+ * library. Implementations are called from the threads of the http client and must be thread safe and fast.
+ *
+ * Endpoints are the method and path without query and with numeric ids replaced, e.g.
+ * {@code PATCH /items/articles/{id}}. The time of a request is split into the time until the response headers
+ * arrived (the server's processing plus one network round trip), the time reading the response body (mostly
+ * network transfer) and, where the SDK parses the body, the time parsing the json. Bodies the SDK parses while
+ * they are received are read until parsing is complete, so their body and parse times overlap.
+ *
+ * @see DirectusAdministrationSdk#setMetrics(RequestMetrics)
+ */
+public interface RequestMetrics {
+
+    /**
+     * a request is about to be sent
+     */
+    void requestStarted(String endpoint);
+
+
+    /**
+     * a response was received completely
+     *
+     * @param headerNanos time from sending the request until the response headers arrived
+     * @param bodyNanos time from the headers until the body was read completely
+     * @param bytesSent size of the request body, 0 if unknown
+     * @param bytesReceived size of the response body as received
+     */
+    void requestFinished(String endpoint, int statusCode, long headerNanos, long bodyNanos, long bytesSent,
+        long bytesReceived);
+
+
+    /**
+     * the request failed without a response, e.g. on a timeout or connection error
+     */
+    void requestFailed(String endpoint, long nanos, Throwable error);
+
+
+    /**
+     * a request is sent again after a failed attempt
+     */
+    void requestRetried(String endpoint);
+
+
+    /**
+     * a request waits for the client side rate limit before it is sent
+     */
+    void requestThrottled(String endpoint, long waitNanos);
+
+
+    /**
+     * the SDK parsed a response body of the endpoint
+     */
+    void responseParsed(String endpoint, long nanos);
+
+
+    /**
+     * a request body was compressed with gzip before it was sent, {@code bytesSent} of the request is the
+     * compressed size
+     */
+    default void requestBodyCompressed(String endpoint, long bytes, long compressedBytes) {
+    }
+
+
+    /**
+     * a response body received with gzip compression was inflated, {@code bytesReceived} of the request is the
+     * compressed size
+     */
+    default void responseBodyDecompressed(String endpoint, long compressedBytes, long bytes) {
+    }
+
+}
@@ -0,0 +1,85 @@
+package io.directus.tools;
+
+import java.util.Map;
+
+
+/**
+ * the JMX view of {@link SimpleRequestMetrics}, e.g. to watch a long running migration with jconsole
+ */
+public interface RequestMetricsMXBean {
+
+    long getRequestCount();
+
+
+    long getFailedRequestCount();
+
+
+    long getRetryCount();
+
+
+    long getThrottledRequestCount();
+
+
+    /**
+     * @return total time requests waited for the rate limit
+     */
+    long getThrottledMillis();
+
+
+    int getInFlightRequests();
+
+
+    long getBytesSent();
+
+
+    long getBytesReceived();
+
+
+    /**
+     * @return size of the request bodies that were compressed, before compression
+     */
+    long getRequestBytesBeforeCompression();
+
+
+    /**
+     * @return size of the request bodies that were compressed, as sent
+     */
+    long getRequestBytesAfterCompression();
+
+
+    /**
+     * @return size of the compressed response bodies, as received
+     */
+    long getResponseBytesBeforeDecompression();
+
+
+    /**
+     * @return size of the compressed response bodies, inflated
+     */
+    long getResponseBytesAfterDecompression();
+
+
+    /**
+     * @return number of responses by status code
+     */
+    Map<String, Long> getStatusCounts();
+
+
+    Map<String, Long> getRequestCountByEndpoint();
+
+
+    Map<String, Double> getMedianLatencyMillisByEndpoint();
+
+
+    Map<String, Double> getP99LatencyMillisByEndpoint();
+
+
+    /**
+     * @return the table {@link SimpleRequestMetrics#getSummary()} prints
+     */
+    String getSummary();
+
+
+    void reset();
+
+}
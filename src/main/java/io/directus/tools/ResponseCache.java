@@ -0,0 +1,354 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+/**
+ * http cache for the responses of {@link DirectusAdministrationSdk#getDirectusData(String)}, so polling e.g.
+ * {@code /collections}, {@code /fields} or {@code /relations} doesn't download and parse the same payload again
+ *
+ * A response with an {@code ETag} or {@code Last-Modified} header is stored with these validators and every later
+ * read sends them as {@code If-None-Match} / {@code If-Modified-Since}, a {@code 304} is answered from the cache. A
+ * response without validators is served from the cache without asking the server until the time to live is over.
+ * Responses with {@code Cache-Control: no-store} and item reads ({@code /items/...}) are not cached.
+ *
+ * Entries are kept in memory up to a total size, the least recently used go first. If a directory is configured
+ * they are also written there, keyed by server, project and token, so a later process starts with them.
+ *
+ * Writes of the SDK drop the entries they may change: a write to {@code /collections}, {@code /fields} or
+ * {@code /relations} drops the entries of all three, other writes the ones of the same endpoint.
+ */
+public class ResponseCache {
+
+    private static final Set<String> SCHEMA_ENDPOINTS = Set.of("collections", "fields", "relations");
+
+    private final Logger logger = Logger.getLogger(ResponseCache.class.getName());
+
+    private final long maxBytes;
+    private final Duration timeToLive;
+    private final Path directory;
+    private final String filePrefix;
+    private final Clock clock;
+
+    // uri -> entry, in the order of access
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private long hits;
+    private long revalidations;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param directory where entries are persisted, null to keep them in memory only
+     * @param owner identifies the server, project and token the entries belong to, only a hash of it is used
+     */
+    ResponseCache(long maxBytes, Duration timeToLive, Path directory, String owner, Clock clock) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1 but was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.timeToLive = Objects.requireNonNull(timeToLive, "timeToLive");
+        this.directory = directory;
+        this.filePrefix = "response." + sha256(Objects.requireNonNull(owner, "owner")).substring(0, 16) + '.';
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+
+    /**
+     * @return whether responses of this path (without the project) are cached
+     */
+    static boolean isCacheable(String path) {
+        return !"items".equals(endpointOf(path));
+    }
+
+
+    /**
+     * @return the entry for the uri from memory or disk, null if there is none
+     */
+    synchronized Entry get(String uri, String path) {
+        Entry entry = entries.get(uri);
+        if (entry == null && directory != null) {
+            entry = readFromFile(uri, path);
+            if (entry != null) {
+                putInMemory(uri, entry);
+            }
+        }
+        if (entry != null && !entry.hasValidators() && !isFresh(entry)) {
+            // an expired entry without validators is of no use anymore
+            remove(uri, path);
+            return null;
+        }
+        return entry;
+    }
+
+
+    synchronized boolean isFresh(Entry entry) {
+        return entry.expiresAt > clock.millis();
+    }
+
+
+    /**
+     * counts a response served from the cache
+     *
+     * @param revalidated whether the server was asked and answered with 304
+     */
+    synchronized void hit(boolean revalidated) {
+        hits++;
+        if (revalidated) {
+            revalidations++;
+        }
+    }
+
+
+    /**
+     * counts a response that had to be downloaded and stores it if it can be cached
+     */
+    synchronized void miss(String uri, String path, HttpResponse<String> response) {
+        misses++;
+        if (response.statusCode() != 200 ||
+            response.headers().allValues("Cache-Control").stream().anyMatch(v -> v.contains("no-store"))) {
+            return;
+        }
+        Entry entry = new Entry(response.body(), response.headers().firstValue("ETag").orElse(null),
+            response.headers().firstValue("Last-Modified").orElse(null), clock.millis() + timeToLive.toMillis(),
+            endpointOf(path));
+        if (entry.size > maxBytes) {
+            return;
+        }
+        putInMemory(uri, entry);
+        if (directory != null) {
+            writeToFile(uri, path, entry);
+        }
+    }
+
+
+    /**
+     * drops the entries a write to the path (without the project) may have changed
+     */
+    synchronized void invalidate(String path) {
+        String endpoint = endpointOf(path);
+        Set<String> endpoints = SCHEMA_ENDPOINTS.contains(endpoint) ? SCHEMA_ENDPOINTS : Set.of(endpoint);
+        for (Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (endpoints.contains(entry.getValue().endpoint)) {
+                bytes -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+        if (directory != null) {
+            for (String invalidated : endpoints) {
+                deleteFiles(filePrefix + invalidated + ".*.json");
+            }
+        }
+    }
+
+
+    /**
+     * drops all entries, including the persisted ones
+     */
+    public synchronized void evict() {
+        entries.clear();
+        bytes = 0;
+        if (directory != null) {
+            deleteFiles(filePrefix + "*.json");
+        }
+    }
+
+
+    /**
+     * @return responses served from the cache, with or without asking the server
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    /**
+     * @return hits the server confirmed with 304
+     */
+    public synchronized long getRevalidations() {
+        return revalidations;
+    }
+
+
+    /**
+     * @return responses that were downloaded, because there was no entry or it was outdated
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * @return entries dropped from memory to stay within the size
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        return "response cache: " + hits + " hits (" + revalidations + " revalidated), " + misses + " misses, " +
+            entries.size() + " entries with " + bytes / 1024 + " KB, " + evictions + " evicted";
+    }
+
+
+    private void putInMemory(String uri, Entry entry) {
+        Entry previous = entries.put(uri, entry);
+        bytes += entry.size - (previous == null ? 0 : previous.size);
+        for (Iterator<Entry> iterator = entries.values().iterator(); bytes > maxBytes && iterator.hasNext();) {
+            Entry eldest = iterator.next();
+            bytes -= eldest.size;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+
+    private void remove(String uri, String path) {
+        Entry entry = entries.remove(uri);
+        if (entry != null) {
+            bytes -= entry.size;
+        }
+        if (directory != null) {
+            try {
+                Files.deleteIfExists(fileOf(uri, path));
+            } catch (IOException e) {
+                logger.warning("deleting cached response " + fileOf(uri, path) + " failed: " + e);
+            }
+        }
+    }
+
+
+    private Path fileOf(String uri, String path) {
+        return directory.resolve(filePrefix + endpointOf(path) + '.' + sha256(uri).substring(0, 32) + ".json");
+    }
+
+
+    private Entry readFromFile(String uri, String path) {
+        Path file = fileOf(uri, path);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            JSONObject stored = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+            if (!uri.equals(stored.getString("uri"))) {
+                return null;
+            }
+            return new Entry(stored.getString("body"), stored.optString("etag", null),
+                stored.optString("last_modified", null), stored.getLong("expires_at"), endpointOf(path));
+        } catch (IOException | JSONException e) {
+            logger.warning("ignoring unreadable cached response " + file + ": " + e);
+            return null;
+        }
+    }
+
+
+    private void writeToFile(String uri, String path, Entry entry) {
+        Path file = fileOf(uri, path);
+        JSONObject stored = new JSONObject()
+            .put("uri", uri)
+            .put("etag", entry.etag)
+            .put("last_modified", entry.lastModified)
+            .put("expires_at", entry.expiresAt)
+            .put("body", entry.body);
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.writeString(temp, stored.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("writing cached response " + file + " failed: " + e);
+        }
+    }
+
+
+    private void deleteFiles(String glob) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warning("deleting cached responses " + directory.resolve(glob) + " failed: " + e);
+        }
+    }
+
+
+    /**
+     * @return the first segment of the path, e.g. {@code fields} for {@code /fields/articles?limit=-1}
+     */
+    static String endpointOf(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') {
+            end++;
+        }
+        return path.substring(start, end);
+    }
+
+
+    private static String sha256(String value) {
+        try {
+            return ProjectExporter.toHex(
+                MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    static final class Entry {
+
+        final String body;
+        final String etag;
+        final String lastModified;
+        final long expiresAt;
+        final String endpoint;
+        final long size;
+
+        Entry(String body, String etag, String lastModified, long expiresAt, String endpoint) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+            this.endpoint = endpoint;
+            this.size = body.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * decides whether and when the SDK sends a failed request again
+ *
+ * Requests that can safely be sent twice (everything but POST) are retried on 429, 5xx responses and IO errors.
+ * POST is only retried on 429 and if the connection couldn't be established, both mean the server didn't
+ * process it. The delay grows exponentially from the initial backoff up to the maximum, with full jitter so
+ * concurrent requests don't retry in lock step. A {@code Retry-After} header of the response is respected.
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(500L);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30L);
+    /** longer Retry-After values are cut to this so a misconfigured server can't stall a run for hours */
+    public static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(5L);
+
+    /** every request is sent once */
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+
+    /**
+     * @param maxAttempts how often a request is sent at most, 1 disables retries
+     * @param initialBackoff upper bound of the delay before the first retry
+     * @param maxBackoff upper bound of the delay before any retry
+     */
+    public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1 but was " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Objects.requireNonNull(initialBackoff, "initialBackoff");
+        this.maxBackoff = Objects.requireNonNull(maxBackoff, "maxBackoff");
+    }
+
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+
+    boolean isRetryable(String method, int statusCode) {
+        return statusCode == 429 || (statusCode >= 500 && !"POST".equals(method));
+    }
+
+
+    boolean isRetryable(String method, Throwable error) {
+        // a connect timeout isn't a ConnectException but the request wasn't sent either
+        return error instanceof ConnectException || error instanceof HttpConnectTimeoutException ||
+            (error instanceof IOException && !"POST".equals(method));
+    }
+
+
+    /**
+     * @param attempt the attempt that failed, starting with 1
+     * @param retryAfter the delay the server asked for, null if it didn't
+     * @return how long to wait before the next attempt
+     */
+    Duration getDelay(int attempt, Duration retryAfter) {
+        long ceiling = initialBackoff.toMillis() << Math.min(attempt - 1, 30);
+        long backoff = ThreadLocalRandom.current().nextLong(Math.min(ceiling, maxBackoff.toMillis()) + 1);
+        if (retryAfter == null) {
+            return Duration.ofMillis(backoff);
+        }
+        return Duration.ofMillis(Math.max(backoff, Math.min(retryAfter.toMillis(), MAX_RETRY_AFTER.toMillis())));
+    }
+
+
+    /**
+     * @return the delay of the response's {@code Retry-After} header (seconds or http date), null if there is
+     *         none or it can't be read
+     */
+    static Duration getRetryAfter(HttpResponse<?> response) {
+        Optional<String> header = response.headers().firstValue("Retry-After");
+        if (header.isEmpty()) {
+            return null;
+        }
+        String value = header.get().trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                Duration delay = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException e2) {
+                return null;
+            }
+        }
+    }
+
+}
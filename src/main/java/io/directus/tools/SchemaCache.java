@@ -0,0 +1,281 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+/**
+ * in-process snapshot of a project's collections, fields and relations
+ *
+ * The snapshot is loaded in one pass ({@code /collections}, {@code /fields} and {@code /relations}) and then
+ * served from memory until it is older than the time to live or evicted. The SDK keeps it up to date with its
+ * own writes. If a file is configured the snapshot is also stored there, so a later process (e.g. the next
+ * CLI call of a migration) can start from it without going to the server as long as it is fresh.
+ *
+ * Changes made by others (e.g. in the Directus app) are only seen after the snapshot expired or was evicted.
+ */
+public class SchemaCache {
+
+    private final Logger logger = Logger.getLogger(SchemaCache.class.getName());
+
+    private final DirectusAdministrationSdk sdk;
+    private final Duration timeToLive;
+    private final Path file;
+    private final Clock clock;
+
+    private long loadedAt;
+    private Map<String, JSONObject> collections;
+    // collection -> field name -> field
+    private Map<String, Map<String, JSONObject>> fields;
+    private List<JSONObject> relations;
+
+    /**
+     * @param file where the snapshot is persisted, null to keep it in memory only
+     */
+    SchemaCache(DirectusAdministrationSdk sdk, Duration timeToLive, Path file, Clock clock) {
+        this.sdk = Objects.requireNonNull(sdk, "sdk");
+        this.timeToLive = Objects.requireNonNull(timeToLive, "timeToLive");
+        this.file = file;
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+
+    /**
+     * @return the collection as returned by {@code /collections/{collection}} or null if it doesn't exist
+     */
+    public synchronized JSONObject getCollection(String collection) throws IOException, InterruptedException {
+        ensureLoaded();
+        JSONObject collectionData = collections.get(collection);
+        return collectionData == null ? null : new JSONObject(collectionData.toString());
+    }
+
+
+    public synchronized List<String> getCollectionNames() throws IOException, InterruptedException {
+        ensureLoaded();
+        return new ArrayList<>(collections.keySet());
+    }
+
+
+    /**
+     * @return the field as returned by {@code /fields/{collection}/{field}} or null if it isn't in the snapshot
+     */
+    public synchronized JSONObject getField(String collection, String field) throws IOException,
+        InterruptedException {
+        ensureLoaded();
+        JSONObject fieldData = fields.getOrDefault(collection, Map.of()).get(field);
+        return fieldData == null ? null : new JSONObject(fieldData.toString());
+    }
+
+
+    /**
+     * @return all fields of the collection, empty if the collection is unknown
+     */
+    public synchronized List<JSONObject> getFields(String collection) throws IOException, InterruptedException {
+        ensureLoaded();
+        List<JSONObject> result = new ArrayList<>();
+        fields.getOrDefault(collection, Map.of()).values().forEach(f -> result.add(new JSONObject(f.toString())));
+        return result;
+    }
+
+
+    public synchronized List<JSONObject> getRelations() throws IOException, InterruptedException {
+        ensureLoaded();
+        List<JSONObject> result = new ArrayList<>();
+        relations.forEach(r -> result.add(new JSONObject(r.toString())));
+        return result;
+    }
+
+
+    /**
+     * drops the snapshot (including the persisted file), the next read loads it again
+     */
+    public synchronized void evict() {
+        collections = null;
+        fields = null;
+        relations = null;
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warning("deleting schema snapshot " + file + " failed: " + e);
+            }
+        }
+    }
+
+
+    public synchronized boolean isFresh() {
+        return collections != null && clock.millis() - loadedAt < timeToLive.toMillis();
+    }
+
+
+    synchronized void putCollection(JSONObject collectionData) {
+        if (collections != null) {
+            String collection = collectionData.getString("collection");
+            collections.put(collection, collectionData);
+            if (collectionData.optJSONArray("fields") != null) {
+                // the shape used to create a collection, stored keyed by name like the api returns it
+                JSONObject fieldsByName = new JSONObject();
+                for (Object field : collectionData.getJSONArray("fields")) {
+                    JSONObject fieldData = (JSONObject) field;
+                    fieldsByName.put(fieldData.getString("field"), fieldData.put("collection", collection));
+                }
+                collectionData.put("fields", fieldsByName);
+            }
+            if (collectionData.optJSONObject("fields") != null) {
+                JSONObject collectionFields = collectionData.getJSONObject("fields");
+                Map<String, JSONObject> fieldMap = new LinkedHashMap<>();
+                collectionFields.keySet().forEach(f -> fieldMap.put(f, collectionFields.getJSONObject(f)));
+                fields.put(collection, fieldMap);
+            }
+            persist();
+        }
+    }
+
+
+    synchronized void removeCollection(String collection) {
+        if (collections != null) {
+            collections.remove(collection);
+            fields.remove(collection);
+            relations.removeIf(r -> collection.equals(r.optString("collection_many")) ||
+                collection.equals(r.optString("collection_one")));
+            persist();
+        }
+    }
+
+
+    synchronized void putField(String collection, JSONObject fieldData) {
+        if (collections != null) {
+            fields.computeIfAbsent(collection, c -> new LinkedHashMap<>()).put(fieldData.getString("field"), fieldData);
+            JSONObject collectionData = collections.get(collection);
+            if (collectionData != null && collectionData.optJSONObject("fields") != null) {
+                collectionData.getJSONObject("fields").put(fieldData.getString("field"), fieldData);
+            }
+            persist();
+        }
+    }
+
+
+    synchronized void removeField(String collection, String field) {
+        if (collections != null) {
+            fields.getOrDefault(collection, new LinkedHashMap<>()).remove(field);
+            JSONObject collectionData = collections.get(collection);
+            if (collectionData != null && collectionData.optJSONObject("fields") != null) {
+                collectionData.getJSONObject("fields").remove(field);
+            }
+            persist();
+        }
+    }
+
+
+    synchronized void putRelation(JSONObject relation) {
+        if (collections != null) {
+            relations.add(relation);
+            persist();
+        }
+    }
+
+
+    synchronized void removeRelation(long id) {
+        if (collections != null) {
+            relations.removeIf(r -> r.optLong("id", -1) == id);
+            persist();
+        }
+    }
+
+
+    private void ensureLoaded() throws IOException, InterruptedException {
+        if (isFresh()) {
+            return;
+        }
+        if (collections == null && file != null && Files.exists(file) && readFromFile()) {
+            return;
+        }
+        long start = clock.millis();
+        JSONArray collectionList = sdk.getDirectusData("/collections?limit=-1").getJSONArray("data");
+        JSONArray fieldList = sdk.getDirectusData("/fields?limit=-1").getJSONArray("data");
+        JSONArray relationList = sdk.getDirectusData("/relations?limit=-1").getJSONArray("data");
+        apply(start, collectionList, fieldList, relationList);
+        logger.info("loaded schema snapshot with " + collections.size() + " collections in " +
+            (clock.millis() - start) + "ms");
+        persist();
+    }
+
+
+    private void apply(long snapshotTime, JSONArray collectionList, JSONArray fieldList, JSONArray relationList) {
+        Map<String, JSONObject> newCollections = new LinkedHashMap<>();
+        Map<String, Map<String, JSONObject>> newFields = new LinkedHashMap<>();
+        List<JSONObject> newRelations = new ArrayList<>();
+        for (int i = 0; i < collectionList.length(); i++) {
+            JSONObject collectionData = collectionList.getJSONObject(i);
+            newCollections.put(collectionData.getString("collection"), collectionData);
+        }
+        for (int i = 0; i < fieldList.length(); i++) {
+            JSONObject fieldData = fieldList.getJSONObject(i);
+            newFields.computeIfAbsent(fieldData.getString("collection"), c -> new LinkedHashMap<>())
+                .put(fieldData.getString("field"), fieldData);
+        }
+        for (int i = 0; i < relationList.length(); i++) {
+            newRelations.add(relationList.getJSONObject(i));
+        }
+        loadedAt = snapshotTime;
+        collections = newCollections;
+        fields = newFields;
+        relations = newRelations;
+    }
+
+
+    private boolean readFromFile() {
+        try {
+            JSONObject snapshot = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+            long snapshotTime = snapshot.getLong("loaded_at");
+            if (clock.millis() - snapshotTime >= timeToLive.toMillis()) {
+                return false;
+            }
+            apply(snapshotTime, snapshot.getJSONArray("collections"), snapshot.getJSONArray("fields"),
+                snapshot.getJSONArray("relations"));
+            logger.info("using schema snapshot " + file + " from " + (clock.millis() - snapshotTime) / 1000 +
+                "s ago");
+            return true;
+        } catch (IOException | JSONException e) {
+            logger.warning("ignoring unreadable schema snapshot " + file + ": " + e);
+            return false;
+        }
+    }
+
+
+    private void persist() {
+        if (file == null) {
+            return;
+        }
+        JSONArray fieldList = new JSONArray();
+        fields.values().forEach(m -> m.values().forEach(fieldList::put));
+        JSONObject snapshot = new JSONObject()
+            .put("loaded_at", loadedAt)
+            .put("collections", new JSONArray(collections.values()))
+            .put("fields", fieldList)
+            .put("relations", new JSONArray(relations));
+        try {
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            Files.writeString(temp, snapshot.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("writing schema snapshot " + file + " failed: " + e);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.directus.tools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * compares the schemas of two projects, e.g. to check staging and production didn't drift apart
+ *
+ * The collections, fields and relations of both projects are read with one async request per endpoint, all six at
+ * the same time, and compared in memory with {@link JsonDiff}. The snapshot a project is reduced to is keyed by
+ * name, so the changes have paths like {@code /fields/articles/title/length}:
+ * <pre>
+ * {"collections": {"articles": {...}},
+ *  "fields": {"articles": {"title": {...}}},
+ *  "relations": {"articles.author": {...}}}
+ * </pre>
+ * Fields lose {@code collection}, {@code id} and {@code group} like in
+ * {@link DirectusAdministrationSdk#getFieldDefinition(String, String)}, relations their {@code id}, since those
+ * differ between projects with the same schema.
+ */
+class SchemaDiff {
+
+    private static final List<String> ENDPOINTS = List.of("collections", "fields", "relations");
+
+    private static final Logger logger = Logger.getLogger(SchemaDiff.class.getName());
+
+    private SchemaDiff() {
+    }
+
+
+    /**
+     * @return the differences from the schema of {@code before} to the one of {@code after}, empty if they are
+     *         the same
+     */
+    static List<JsonDiff.Change> diff(DirectusAdministrationSdk before, DirectusAdministrationSdk after)
+                    throws IOException, InterruptedException {
+        Objects.requireNonNull(before, "before");
+        Objects.requireNonNull(after, "after");
+        long start = System.nanoTime();
+        List<JSONObject> snapshots = snapshots(List.of(before, after));
+        List<JsonDiff.Change> changes = JsonDiff.diff(snapshots.get(0), snapshots.get(1));
+        logger.info(() -> "compared the schemas, " + changes.size() + " differences in " +
+            (System.nanoTime() - start) / 1_000_000 + "ms");
+        return changes;
+    }
+
+
+    /**
+     * @return the normalized schema snapshot of every project, read concurrently with the async api
+     */
+    static List<JSONObject> snapshots(List<DirectusAdministrationSdk> sdks) throws IOException, InterruptedException {
+        List<CompletableFuture<JSONObject>> results = new ArrayList<>();
+        for (DirectusAdministrationSdk sdk : sdks) {
+            for (String endpoint : ENDPOINTS) {
+                results.add(sdk.getDirectusDataAsync('/' + endpoint + "?limit=-1"));
+            }
+        }
+        try {
+            DirectusAdministrationSdk.await(CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // don't leave the other reads running
+            results.forEach(r -> r.cancel(true));
+            throw e;
+        }
+
+        List<JSONObject> snapshots = new ArrayList<>();
+        for (int i = 0; i < sdks.size(); i++) {
+            int first = i * ENDPOINTS.size();
+            snapshots.add(normalize(data(results.get(first)), data(results.get(first + 1)),
+                data(results.get(first + 2))));
+        }
+        return snapshots;
+    }
+
+
+    private static JSONArray data(CompletableFuture<JSONObject> result) {
+        return result.join().getJSONArray("data");
+    }
+
+
+    static JSONObject normalize(JSONArray collections, JSONArray fields, JSONArray relations) {
+        JSONObject collectionsByName = new JSONObject();
+        for (Object object : collections) {
+            JSONObject collection = new JSONObject(object.toString());
+            String name = (String) collection.remove("collection");
+            // the fields are compared on their own
+            collection.remove("fields");
+            collectionsByName.put(name, collection);
+        }
+
+        JSONObject fieldsByCollection = new JSONObject();
+        for (Object object : fields) {
+            JSONObject field = new JSONObject(object.toString());
+            String collection = field.getString("collection");
+            List.of("collection", "id", "group").forEach(field::remove);
+            JSONObject collectionFields = fieldsByCollection.optJSONObject(collection);
+            if (collectionFields == null) {
+                collectionFields = new JSONObject();
+                fieldsByCollection.put(collection, collectionFields);
+            }
+            collectionFields.put(field.getString("field"), field);
+        }
+
+        JSONObject relationsByField = new JSONObject();
+        for (Object object : relations) {
+            JSONObject relation = new JSONObject(object.toString());
+            relation.remove("id");
+            String key = relation.optString("collection_many") + '.' + relation.optString("field_many");
+            // more than one relation on a field is a drift on its own, keep all of them
+            String uniqueKey = key;
+            for (int i = 2; relationsByField.has(uniqueKey); i++) {
+                uniqueKey = key + '#' + i;
+            }
+            relationsByField.put(uniqueKey, relation);
+        }
+
+        return new JSONObject()
+            .put("collections", collectionsByName)
+            .put("fields", fieldsByCollection)
+            .put("relations", relationsByField);
+    }
+
+}
@@ -0,0 +1,356 @@
+package io.directus.tools;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+
+/**
+ * the default {@link RequestMetrics}: counters and latency histograms per endpoint kept in memory
+ *
+ * Latencies are recorded in a histogram with four buckets per power of two microseconds, so percentiles are
+ * exact to about 20%. Recording is lock free and doesn't allocate once an endpoint has been seen.
+ */
+public class SimpleRequestMetrics implements RequestMetrics, RequestMetricsMXBean {
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ObjectName registeredName;
+
+    @Override
+    public void requestStarted(String endpoint) {
+        inFlight.incrementAndGet();
+    }
+
+
+    @Override
+    public void requestFinished(String endpoint, int statusCode, long headerNanos, long bodyNanos, long bytesSent,
+        long bytesReceived) {
+        inFlight.decrementAndGet();
+        EndpointStats stats = stats(endpoint);
+        stats.requests.increment();
+        stats.headerNanos.add(headerNanos);
+        stats.bodyNanos.add(bodyNanos);
+        stats.bytesSent.add(bytesSent);
+        stats.bytesReceived.add(bytesReceived);
+        stats.latency.record(headerNanos + bodyNanos);
+        statusCounts.computeIfAbsent(statusCode, s -> new LongAdder()).increment();
+    }
+
+
+    @Override
+    public void requestFailed(String endpoint, long nanos, Throwable error) {
+        inFlight.decrementAndGet();
+        EndpointStats stats = stats(endpoint);
+        stats.requests.increment();
+        stats.failures.increment();
+        stats.latency.record(nanos);
+    }
+
+
+    @Override
+    public void requestRetried(String endpoint) {
+        stats(endpoint).retries.increment();
+    }
+
+
+    @Override
+    public void requestThrottled(String endpoint, long waitNanos) {
+        EndpointStats stats = stats(endpoint);
+        stats.throttled.increment();
+        stats.throttledNanos.add(waitNanos);
+    }
+
+
+    @Override
+    public void responseParsed(String endpoint, long nanos) {
+        EndpointStats stats = stats(endpoint);
+        stats.parses.increment();
+        stats.parseNanos.add(nanos);
+    }
+
+
+    @Override
+    public void requestBodyCompressed(String endpoint, long bytes, long compressedBytes) {
+        EndpointStats stats = stats(endpoint);
+        stats.requestBytesUncompressed.add(bytes);
+        stats.requestBytesCompressed.add(compressedBytes);
+    }
+
+
+    @Override
+    public void responseBodyDecompressed(String endpoint, long compressedBytes, long bytes) {
+        EndpointStats stats = stats(endpoint);
+        stats.responseBytesCompressed.add(compressedBytes);
+        stats.responseBytesUncompressed.add(bytes);
+    }
+
+
+    @Override
+    public long getRequestCount() {
+        return sum(s -> s.requests.sum());
+    }
+
+
+    @Override
+    public long getFailedRequestCount() {
+        return sum(s -> s.failures.sum());
+    }
+
+
+    @Override
+    public long getRetryCount() {
+        return sum(s -> s.retries.sum());
+    }
+
+
+    @Override
+    public long getThrottledRequestCount() {
+        return sum(s -> s.throttled.sum());
+    }
+
+
+    @Override
+    public long getThrottledMillis() {
+        return sum(s -> s.throttledNanos.sum()) / 1_000_000;
+    }
+
+
+    @Override
+    public int getInFlightRequests() {
+        return inFlight.get();
+    }
+
+
+    @Override
+    public long getBytesSent() {
+        return sum(s -> s.bytesSent.sum());
+    }
+
+
+    @Override
+    public long getBytesReceived() {
+        return sum(s -> s.bytesReceived.sum());
+    }
+
+
+    @Override
+    public long getRequestBytesBeforeCompression() {
+        return sum(s -> s.requestBytesUncompressed.sum());
+    }
+
+
+    @Override
+    public long getRequestBytesAfterCompression() {
+        return sum(s -> s.requestBytesCompressed.sum());
+    }
+
+
+    @Override
+    public long getResponseBytesBeforeDecompression() {
+        return sum(s -> s.responseBytesCompressed.sum());
+    }
+
+
+    @Override
+    public long getResponseBytesAfterDecompression() {
+        return sum(s -> s.responseBytesUncompressed.sum());
+    }
+
+
+    @Override
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        statusCounts.forEach((status, count) -> counts.put(String.valueOf(status), count.sum()));
+        return counts;
+    }
+
+
+    @Override
+    public Map<String, Long> getRequestCountByEndpoint() {
+        Map<String, Long> counts = new TreeMap<>();
+        endpoints.forEach((endpoint, stats) -> counts.put(endpoint, stats.requests.sum()));
+        return counts;
+    }
+
+
+    @Override
+    public Map<String, Double> getMedianLatencyMillisByEndpoint() {
+        return byEndpoint(s -> s.latency.percentileMillis(0.5));
+    }
+
+
+    @Override
+    public Map<String, Double> getP99LatencyMillisByEndpoint() {
+        return byEndpoint(s -> s.latency.percentileMillis(0.99));
+    }
+
+
+    @Override
+    public void reset() {
+        endpoints.clear();
+        statusCounts.clear();
+    }
+
+
+    /**
+     * @return a table with one line per endpoint: requests, failures, retries, latency percentiles, the mean
+     *         time until the headers arrived (server and round trip), reading the body and parsing it, and the
+     *         bytes sent and received as they went over the network, then the totals and, if bodies were
+     *         compressed, their sizes before and after compression
+     */
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder(String.format("%-40s %8s %6s %7s %9s %9s %9s %9s %9s %10s %10s%n",
+            "endpoint", "requests", "failed", "retries", "p50 ms", "p99 ms", "server ms", "body ms", "parse ms",
+            "KB out", "KB in"));
+        new TreeMap<>(endpoints).forEach((endpoint, s) -> {
+            long requests = s.requests.sum();
+            long parses = s.parses.sum();
+            long responses = Math.max(1, requests - s.failures.sum());
+            summary.append(String.format("%-40s %8d %6d %7d %9.1f %9.1f %9.2f %9.2f %9.2f %10d %10d%n", endpoint,
+                requests, s.failures.sum(), s.retries.sum(), s.latency.percentileMillis(0.5),
+                s.latency.percentileMillis(0.99), s.headerNanos.sum() / 1e6 / responses,
+                s.bodyNanos.sum() / 1e6 / responses, parses == 0 ? 0 : s.parseNanos.sum() / 1e6 / parses,
+                s.bytesSent.sum() / 1024, s.bytesReceived.sum() / 1024));
+        });
+        summary.append(String.format("total: %d requests, %d failed, %d retried, %d throttled for %d ms, %d KB sent," +
+            " %d KB received, status codes %s%n", getRequestCount(), getFailedRequestCount(), getRetryCount(),
+            getThrottledRequestCount(), getThrottledMillis(), getBytesSent() / 1024, getBytesReceived() / 1024,
+            getStatusCounts()));
+        if (getRequestBytesBeforeCompression() > 0 || getResponseBytesBeforeDecompression() > 0) {
+            summary.append(String.format("gzip: %d KB of request bodies sent as %d KB, %d KB of response bodies " +
+                "received as %d KB%n", getRequestBytesBeforeCompression() / 1024,
+                getRequestBytesAfterCompression() / 1024, getResponseBytesAfterDecompression() / 1024,
+                getResponseBytesBeforeDecompression() / 1024));
+        }
+        return summary.toString();
+    }
+
+
+    /**
+     * registers this instance with the platform MBean server as
+     * {@code io.directus.tools:type=RequestMetrics,name=<name>}
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        try {
+            registeredName = new ObjectName("io.directus.tools:type=RequestMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, registeredName);
+            return registeredName;
+        } catch (JMException e) {
+            throw new IllegalStateException("registering request metrics as '" + name + "' failed", e);
+        }
+    }
+
+
+    public synchronized void unregisterMBean() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            throw new IllegalStateException("unregistering request metrics " + registeredName + " failed", e);
+        }
+        registeredName = null;
+    }
+
+
+    private EndpointStats stats(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, e -> new EndpointStats());
+    }
+
+
+    private long sum(ToLongFunction<EndpointStats> value) {
+        return endpoints.values().stream().mapToLong(value).sum();
+    }
+
+
+    private Map<String, Double> byEndpoint(ToDoubleFunction<EndpointStats> value) {
+        Map<String, Double> values = new TreeMap<>();
+        endpoints.forEach((endpoint, stats) -> values.put(endpoint, value.applyAsDouble(stats)));
+        return values;
+    }
+
+
+    private static class EndpointStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder throttledNanos = new LongAdder();
+        private final LongAdder headerNanos = new LongAdder();
+        private final LongAdder bodyNanos = new LongAdder();
+        private final LongAdder parses = new LongAdder();
+        private final LongAdder parseNanos = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder requestBytesUncompressed = new LongAdder();
+        private final LongAdder requestBytesCompressed = new LongAdder();
+        private final LongAdder responseBytesCompressed = new LongAdder();
+        private final LongAdder responseBytesUncompressed = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+
+    /**
+     * log-linear histogram of microseconds: values below 4 have their own bucket, above that every power of two
+     * is split into four buckets
+     */
+    private static class LatencyHistogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(256);
+
+        void record(long nanos) {
+            buckets.incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+        }
+
+
+        double percentileMillis(double percentile) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return upperBound(i) / 1000.0;
+                }
+            }
+            return upperBound(buckets.length() - 1) / 1000.0;
+        }
+
+
+        private static int bucket(long micros) {
+            if (micros < 4) {
+                return (int) micros;
+            }
+            int highestBit = 63 - Long.numberOfLeadingZeros(micros);
+            return (highestBit - 1) * 4 + (int) ((micros >> (highestBit - 2)) & 3);
+        }
+
+
+        private static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket + 1;
+            }
+            int highestBit = bucket / 4 + 1;
+            return (4L + bucket % 4 + 1) << (highestBit - 2);
+        }
+    }
+
+}